@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.jmh;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.dataset.DatasetSpec;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Контекст приложения без веб-сервера на in-memory H2 с синтетическими данными. Данные записываются
+ * до {@code ApplicationReadyEvent}, поэтому индексы и рейтинги в памяти строятся уже по ним.
+ * Данные пишет {@link DatasetGenerator}; размеры задаются параметрами JMH, например
+ * {@code -p films=100000 -p users=50000 -p likes=2000000}. Параметр {@code jdbcStats} включает и выключает
+ * статистику SQL-запросов ({@code filmorate.jdbc.stats.enabled}), чтобы её накладные расходы были видны в
+ * одном прогоне.
+ */
+@State(Scope.Benchmark)
+public class FilmorateState {
+    @Param("5000")
+    public int users;
+
+    @Param("10000")
+    public int films;
+
+    @Param("100000")
+    public long likes;
+
+    @Param("50000")
+    public long friendships;
+
+    @Param("30000")
+    public int reviews;
+
+    @Param("100000")
+    public long reviewRatings;
+
+    @Param("42")
+    public long seed;
+
+    @Param({"true", "false"})
+    public boolean jdbcStats;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        DatasetGenerator generator = new DatasetGenerator(DatasetSpec.builder()
+                .users(users)
+                .films(films)
+                .likes(likes)
+                .friendships(friendships)
+                .reviews(reviews)
+                .reviewRatings(reviewRatings)
+                .seed(seed)
+                .build());
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .listeners((ApplicationListener<ApplicationStartedEvent>) event ->
+                        load(generator, event.getApplicationContext().getBean(DataSource.class)))
+                .run("--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN",
+                        "--logging.level.ru.yandex.practicum.filmorate=WARN",
+                        "--filmorate.jdbc.stats.enabled=" + jdbcStats,
+                        "--filmorate.jdbc.stats.log-interval-ms=3600000");
+    }
+
+    private static void load(DatasetGenerator generator, DataSource dataSource) {
+        try {
+            generator.load(dataSource);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось записать набор данных", e);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.UserEvent;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.service.UserRecommendationsService;
+import ru.yandex.practicum.filmorate.storage.FeedDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути хранилищ и сервисов на синтетических данных {@link FilmorateState}. Методы хранилища выполняют
+ * SQL, одноимённые методы с суффиксом {@code Service} идут через структуры в памяти (рейтинги, поисковый индекс,
+ * матрица лайков), поэтому оба варианта попадают в один прогон. Выделение памяти смотрится профилировщиком
+ * {@code gc}.
+ *
+ * <pre>
+ * mvn -P jmh test-compile exec:exec
+ * mvn -P jmh test-compile exec:exec -Djmh.args="HotPathBenchmark.getTopFilms -p films=100000 -rf json"
+ * mvn -P jmh test-compile exec:exec -Djmh.args="HotPathBenchmark.(getFilms|search.*) -p jdbcStats=true -prof gc"
+ * mvn -P jmh test-compile exec:exec -Djmh.args="HotPathBenchmark.(getRecommendations|findRecommendedFilmsForUser)$
+ *     -p likes=1000000 -p jdbcStats=true -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotPathBenchmark {
+    @Param("love")
+    public String search;
+
+    private FilmStorage filmStorage;
+    private FilmService filmService;
+    private UserStorage userStorage;
+    private FeedDbStorage feedStorage;
+    private ReviewService reviewService;
+    private UserRecommendationsService recommendationsService;
+    private int users;
+    private int films;
+
+    @Setup
+    public void setUp(FilmorateState state) {
+        filmStorage = state.getBean(FilmStorage.class);
+        filmService = state.getBean(FilmService.class);
+        userStorage = state.getBean(UserStorage.class);
+        feedStorage = state.getBean(FeedDbStorage.class);
+        reviewService = state.getBean(ReviewService.class);
+        recommendationsService = state.getBean(UserRecommendationsService.class);
+        users = state.users;
+        films = state.films;
+    }
+
+    @Benchmark
+    public Collection<Film> getTopFilms() {
+        return filmStorage.getTopFilms(10, null, null);
+    }
+
+    @Benchmark
+    public List<Film> getTopFilmsService() {
+        return filmService.getTopFilms(10, null, null);
+    }
+
+    @Benchmark
+    public Collection<Film> getTopFilmsByGenreAndYear() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return filmStorage.getTopFilms(10, 1L + random.nextInt(6), 1930 + random.nextInt(90));
+    }
+
+    @Benchmark
+    public List<Film> getTopFilmsByGenreAndYearService() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return filmService.getTopFilms(10, 1L + random.nextInt(6), 1930 + random.nextInt(90));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public Collection<Film> getFilms() {
+        return filmStorage.getFilms();
+    }
+
+    @Benchmark
+    public Film findById() {
+        return filmStorage.findById(randomFilm());
+    }
+
+    @Benchmark
+    public Collection<Film> getCommonFilms() {
+        return filmStorage.getCommonFilms(randomUser(), randomUser());
+    }
+
+    @Benchmark
+    public List<Film> getCommonFilmsService() {
+        return filmService.getCommonFilms(randomUser(), randomUser());
+    }
+
+    @Benchmark
+    public List<Film> searchByTitle() {
+        return filmStorage.searchByTitle(search);
+    }
+
+    @Benchmark
+    public List<Film> searchByTitleService() {
+        return filmService.search(search, "title");
+    }
+
+    @Benchmark
+    public List<Film> searchByDirector() {
+        return filmStorage.searchByDirector("tor 1");
+    }
+
+    @Benchmark
+    public List<Film> searchByDirectorService() {
+        return filmService.search("tor 1", "director");
+    }
+
+    @Benchmark
+    public List<Film> searchByBoth() {
+        return filmStorage.searchByBoth(search);
+    }
+
+    @Benchmark
+    public List<Film> searchByBothService() {
+        return filmService.search(search, "title,director");
+    }
+
+    @Benchmark
+    public List<Film> findRecommendedFilmsForUser() {
+        return userStorage.findRecommendedFilmsForUser(randomUser());
+    }
+
+    @Benchmark
+    public Collection<Film> getRecommendations() {
+        return recommendationsService.getRecommendations(randomUser());
+    }
+
+    @Benchmark
+    public Collection<Review> findReviewsOfFilm() {
+        return reviewService.findReviewsOfFilm(randomFilm(), null, null, 10);
+    }
+
+    @Benchmark
+    public Collection<UserEvent> getFeed() {
+        return feedStorage.getFeed(randomUser());
+    }
+
+    private long randomFilm() {
+        return 1 + ThreadLocalRandom.current().nextInt(films);
+    }
+
+    private long randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.jmh;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лайки фильма в {@link LikeSet} против прежнего {@code HashSet<Long>}: сборка из массива id, как в
+ * {@code FilmAssembler}, проверка вхождения и запись в JSON. Выделение памяти смотрится профилировщиком
+ * {@code gc}.
+ *
+ * <pre>
+ * mvn -P jmh test-compile exec:exec -Djmh.args="LikeSetBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LikeSetBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int likes;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private long[] userIds;
+    private LikeSet likeSet;
+    private Set<Long> hashSet;
+    private long[] probes;
+    private int probe;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        // FilmAssembler получает id из ARRAY_AGG(... ORDER BY user_id), то есть уже отсортированными
+        userIds = random.longs(likes, 1, likes * 4L).sorted().distinct().toArray();
+        likeSet = LikeSet.of(userIds);
+        hashSet = toHashSet(userIds);
+        probes = random.longs(1024, 1, likes * 4L).toArray();
+    }
+
+    @Benchmark
+    public LikeSet buildLikeSet() {
+        return LikeSet.of(userIds);
+    }
+
+    @Benchmark
+    public Set<Long> buildHashSet() {
+        return toHashSet(userIds);
+    }
+
+    @Benchmark
+    public boolean containsLikeSet() {
+        return likeSet.contains(nextProbe());
+    }
+
+    @Benchmark
+    public boolean containsHashSet() {
+        return hashSet.contains(nextProbe());
+    }
+
+    @Benchmark
+    public String writeLikeSet() throws JsonProcessingException {
+        return mapper.writeValueAsString(likeSet);
+    }
+
+    @Benchmark
+    public String writeHashSet() throws JsonProcessingException {
+        return mapper.writeValueAsString(hashSet);
+    }
+
+    private long nextProbe() {
+        probe = (probe + 1) & (probes.length - 1);
+        return probes[probe];
+    }
+
+    private static Set<Long> toHashSet(long[] values) {
+        Set<Long> set = new HashSet<>();
+        for (long value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Заполняет запущенное приложение синтетическими пользователями, фильмами, лайками, дружбой и отзывами
+ * через HTTP API. Пользователи и фильмы получают id 1..users и 1..films, лайки распределены неравномерно:
+ * фильмы с меньшим id популярнее. Друзья пользователя u — следующие за ним friendsPerUser пользователей
+ * по кругу, отзывы получают id 1..films * reviewsPerFilm.
+ */
+public final class HttpDatasetSeeder {
+    private static final int PARALLELISM = 16;
+
+    private final LoadClient client;
+    private final Random random;
+
+    public HttpDatasetSeeder(LoadClient client, long seed) {
+        this.client = client;
+        this.random = new Random(seed);
+    }
+
+    public void seed(int users, int films, int likesPerUser) throws Exception {
+        seed(users, films, likesPerUser, 0, 0);
+    }
+
+    public void seed(int users, int films, int likesPerUser, int friendsPerUser, int reviewsPerFilm)
+            throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM, Thread.ofVirtual().factory())) {
+            List<Future<Integer>> requests = new ArrayList<>();
+            for (int i = 1; i <= users; i++) {
+                String json = String.format("{\"email\":\"user%d@load.ru\",\"login\":\"user%d\",\"name\":\"User %d\","
+                        + "\"birthday\":\"1990-01-01\"}", i, i, i);
+                requests.add(executor.submit(() -> client.post("/users", json)));
+            }
+            await(requests);
+            for (int i = 1; i <= films; i++) {
+                String json = String.format("{\"name\":\"Film %d\",\"description\":\"Synthetic film %d\","
+                                + "\"releaseDate\":\"%d-01-01\",\"duration\":%d,\"mpa\":{\"id\":%d},"
+                                + "\"genres\":[{\"id\":%d}]}",
+                        i, i, 1950 + random.nextInt(75), 80 + random.nextInt(100), 1 + random.nextInt(5),
+                        1 + random.nextInt(6));
+                requests.add(executor.submit(() -> client.post("/films", json)));
+            }
+            await(requests);
+            for (int userId = 1; userId <= users; userId++) {
+                for (int i = 0; i < likesPerUser; i++) {
+                    // квадрат равномерной величины смещает лайки к началу списка фильмов
+                    double skewed = random.nextDouble() * random.nextDouble();
+                    String path = "/films/" + (1 + (int) (skewed * films)) + "/like/" + userId;
+                    requests.add(executor.submit(() -> client.put(path)));
+                }
+            }
+            await(requests);
+            for (int userId = 1; userId <= users; userId++) {
+                for (int i = 1; i <= friendsPerUser; i++) {
+                    String path = "/users/" + userId + "/friends/" + (1 + (userId - 1 + i) % users);
+                    requests.add(executor.submit(() -> client.put(path)));
+                }
+            }
+            await(requests);
+            for (int filmId = 1; filmId <= films; filmId++) {
+                for (int i = 0; i < reviewsPerFilm; i++) {
+                    String json = String.format("{\"content\":\"Review %d of film %d\",\"isPositive\":%b,"
+                            + "\"userId\":%d,\"filmId\":%d}", i, filmId, random.nextBoolean(),
+                            1 + random.nextInt(users), filmId);
+                    requests.add(executor.submit(() -> client.post("/reviews", json)));
+                }
+            }
+            await(requests);
+        }
+    }
+
+    private static void await(List<Future<Integer>> requests) throws Exception {
+        for (Future<Integer> request : requests) {
+            int status = request.get();
+            if (status >= 300) {
+                throw new IllegalStateException("Не удалось заполнить базу: ответ " + status);
+            }
+        }
+        requests.clear();
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.load;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Приложение на случайном порту и отдельной in-memory базе H2 для нагрузочных сценариев.
+ */
+public final class LoadApplication implements AutoCloseable {
+    private final ConfigurableApplicationContext context;
+    private final URI baseUri;
+
+    private LoadApplication(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.baseUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    /**
+     * @param name       имя in-memory базы
+     * @param properties дополнительные свойства в виде {@code --key=value}
+     */
+    public static LoadApplication start(String name, String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                "--logging.level.root=WARN",
+                "--logging.level.ru.yandex.practicum.filmorate=WARN",
+                "--logging.level.org.zalando.logbook=WARN"));
+        args.addAll(List.of(properties));
+        return new LoadApplication(new SpringApplicationBuilder(FilmorateApplication.class)
+                .run(args.toArray(String[]::new)));
+    }
+
+    public URI uri(String path) {
+        return baseUri.resolve(path);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.load;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP-клиент нагрузочных сценариев: запросы выполняются в виртуальных потоках, тело ответа
+ * вычитывается и отбрасывается.
+ */
+public final class LoadClient {
+    private final LoadApplication application;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    public LoadClient(LoadApplication application) {
+        this.application = application;
+    }
+
+    public int get(String path) throws IOException, InterruptedException {
+        return send("GET", path, null);
+    }
+
+    public int put(String path) throws IOException, InterruptedException {
+        return send("PUT", path, null);
+    }
+
+    public int delete(String path) throws IOException, InterruptedException {
+        return send("DELETE", path, null);
+    }
+
+    public int post(String path, String json) throws IOException, InterruptedException {
+        return send("POST", path, json);
+    }
+
+    public int send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(application.uri(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .method(method, json == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
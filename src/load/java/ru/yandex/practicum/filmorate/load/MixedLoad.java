@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузка смесью запросов ко всем основным контроллерам. Приложение запускается на in-memory H2,
+ * заполняется через API, после прогрева {@code load.clients} клиентов без пауз выполняют запросы
+ * из смеси {@code load.mix} (см. {@link Workload}) в течение {@code load.duration}. По каждой операции
+ * выводятся пропускная способность, доля ошибок и перцентили задержки; {@code load.report} задаёт
+ * CSV-файл для сравнения прогонов.
+ *
+ * <pre>
+ * mvn -P load test-compile exec:java -Dload.mix=read -Dload.clients=500 -Dload.duration=PT2M
+ * mvn -P load test-compile exec:java -Dload.mix=popular=70,like=30 -Dload.report=target/load.csv
+ * mvn -P load test-compile exec:java -Dload.app-args=--spring.threads.virtual.enabled=true
+ * </pre>
+ */
+public final class MixedLoad {
+    private static final String MIX = System.getProperty("load.mix", "default");
+    private static final int CLIENTS = Integer.getInteger("load.clients", 200);
+    private static final Duration WARMUP = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT60S"));
+    private static final int USERS = Integer.getInteger("load.users", 2000);
+    private static final int FILMS = Integer.getInteger("load.films", 5000);
+    private static final int LIKES_PER_USER = Integer.getInteger("load.likes-per-user", 20);
+    private static final int FRIENDS_PER_USER = Integer.getInteger("load.friends-per-user", 10);
+    private static final int REVIEWS_PER_FILM = Integer.getInteger("load.reviews-per-film", 2);
+    private static final String APP_ARGS = System.getProperty("load.app-args", "");
+    private static final String REPORT = System.getProperty("load.report", "");
+
+    private MixedLoad() {
+    }
+
+    private record Stats(Histogram[] latency, LongAdder[] errors) {
+        static Stats of(int size) {
+            Histogram[] latency = new Histogram[size];
+            LongAdder[] errors = new LongAdder[size];
+            for (int i = 0; i < size; i++) {
+                latency[i] = new ConcurrentHistogram(3);
+                errors[i] = new LongAdder();
+            }
+            return new Stats(latency, errors);
+        }
+    }
+
+    private record Row(String operation, String endpoint, long requests, long errors, double seconds,
+                       Histogram latency) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Workload workload = Workload.parse(MIX, new Workload.Dataset(USERS, FILMS, FRIENDS_PER_USER,
+                REVIEWS_PER_FILM));
+        String[] appArgs = APP_ARGS.isBlank() ? new String[0] : APP_ARGS.trim().split("\\s+");
+
+        try (LoadApplication application = LoadApplication.start("load-mixed", appArgs)) {
+            LoadClient client = new LoadClient(application);
+            new HttpDatasetSeeder(client, 42).seed(USERS, FILMS, LIKES_PER_USER, FRIENDS_PER_USER, REVIEWS_PER_FILM);
+
+            System.out.printf("Прогрев %s, %d клиентов%n", WARMUP, CLIENTS);
+            drive(client, workload, WARMUP, Stats.of(workload.getOperations().size()));
+
+            System.out.printf("Нагрузка %s, %d клиентов, смесь %s%n", DURATION, CLIENTS, MIX);
+            Stats stats = Stats.of(workload.getOperations().size());
+            long started = System.nanoTime();
+            drive(client, workload, DURATION, stats);
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            report(workload, stats, seconds);
+        }
+    }
+
+    private static void drive(LoadClient client, Workload workload, Duration duration, Stats stats)
+            throws InterruptedException {
+        List<Workload.Operation> operations = workload.getOperations();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Thread> clients = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(Thread.ofVirtual().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int index = workload.next(random);
+                    long started = System.nanoTime();
+                    try {
+                        if (operations.get(index).call().execute(client, random) >= 400) {
+                            stats.errors()[index].increment();
+                        }
+                    } catch (Exception e) {
+                        stats.errors()[index].increment();
+                    }
+                    stats.latency()[index].recordValue((System.nanoTime() - started) / 1000);
+                }
+            }));
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+    }
+
+    private static void report(Workload workload, Stats stats, double seconds) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (int i = 0; i < workload.getOperations().size(); i++) {
+            Workload.Operation operation = workload.getOperations().get(i);
+            Histogram latency = stats.latency()[i];
+            long errors = stats.errors()[i].sum();
+            rows.add(new Row(operation.name(), operation.endpoint(), latency.getTotalCount(), errors, seconds,
+                    latency));
+            total.add(latency);
+            totalErrors += errors;
+        }
+        rows.add(new Row("total", "", total.getTotalCount(), totalErrors, seconds, total));
+
+        System.out.printf("%nclients=%d duration=%s users=%d films=%d mix=%s%n", CLIENTS, DURATION, USERS, FILMS, MIX);
+        System.out.printf("%-16s %-40s %9s %7s %7s %8s %8s %8s %8s %8s %8s%n", "operation", "endpoint",
+                "requests", "errors", "err %", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Row row : rows) {
+            System.out.printf(Locale.ROOT, "%-16s %-40s %9d %7d %7.2f %8.1f %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                    row.operation(), row.endpoint(), row.requests(), row.errors(), errorRate(row),
+                    row.requests() / row.seconds(), percentile(row, 50), percentile(row, 90), percentile(row, 99),
+                    percentile(row, 99.9), row.latency().getMaxValue() / 1000.0);
+        }
+
+        if (!REPORT.isBlank()) {
+            Path path = Path.of(REPORT);
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+                writer.println("operation,endpoint,requests,errors,error_rate,rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+                for (Row row : rows) {
+                    writer.printf(Locale.ROOT, "%s,\"%s\",%d,%d,%.4f,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                            row.operation(), row.endpoint(), row.requests(), row.errors(), errorRate(row) / 100,
+                            row.requests() / row.seconds(), percentile(row, 50), percentile(row, 90),
+                            percentile(row, 99), percentile(row, 99.9), row.latency().getMaxValue() / 1000.0);
+                }
+            }
+            System.out.println("Отчёт записан в " + path.toAbsolutePath());
+        }
+    }
+
+    private static double errorRate(Row row) {
+        return row.requests() == 0 ? 0 : 100.0 * row.errors() / row.requests();
+    }
+
+    private static double percentile(Row row, double percentile) {
+        return row.latency().getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.load;
+
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.dataset.DatasetSpec;
+import ru.yandex.practicum.filmorate.model.SnapshotStats;
+import ru.yandex.practicum.filmorate.service.SnapshotService;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Сравнение загрузки одних и тех же данных двумя путями: пачками INSERT через JDBC ({@link DatasetGenerator})
+ * и восстановлением из снимка ({@link SnapshotService#restore(String)}). В каждом раунде база очищается
+ * восстановлением пустого снимка, заполняется генератором, записывается в снимок и восстанавливается из него.
+ * Время генератора включает и генерацию значений; время восстановления выводится без перестройки индексов
+ * в памяти и вместе с ней.
+ *
+ * <pre>
+ * mvn -P load test-compile exec:java -Dload.main=ru.yandex.practicum.filmorate.load.SnapshotRestoreBenchmark \
+ *     -Dload.users=100000 -Dload.films=20000 -Dload.likes=2000000 -Dload.rounds=3
+ * </pre>
+ */
+public final class SnapshotRestoreBenchmark {
+    private static final int ROUNDS = Integer.getInteger("load.rounds", 3);
+    private static final DatasetSpec SPEC = DatasetSpec.builder()
+            .users(Integer.getInteger("load.users", 10_000))
+            .films(Integer.getInteger("load.films", 5_000))
+            .likes(Long.getLong("load.likes", 200_000))
+            .friendships(Long.getLong("load.friendships", 100_000))
+            .reviews(Integer.getInteger("load.reviews", 10_000))
+            .reviewRatings(Long.getLong("load.review-ratings", 50_000))
+            .build();
+
+    private SnapshotRestoreBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("filmorate-snapshots");
+        try (LoadApplication application = LoadApplication.start("load-snapshot",
+                "--filmorate.snapshot.dir=" + directory)) {
+            DataSource dataSource = application.getBean(DataSource.class);
+            SnapshotService snapshots = application.getBean(SnapshotService.class);
+            snapshots.write("empty");
+
+            System.out.printf("%s%n%-6s %10s %10s %10s %10s %10s %12s %10s%n", SPEC, "round", "rows",
+                    "insert ms", "rows/s", "snap ms", "restore ms", "rows/s", "+reload ms");
+            for (int round = 1; round <= ROUNDS; round++) {
+                snapshots.restore("empty");
+                DatasetGenerator.Stats inserted = new DatasetGenerator(SPEC).load(dataSource);
+                SnapshotStats written = snapshots.write("benchmark");
+                long started = System.nanoTime();
+                SnapshotStats restored = snapshots.restore("benchmark");
+                long withReload = (System.nanoTime() - started) / 1_000_000;
+
+                // обоими путями загружаются одни и те же строки, включая жанры и режиссёров фильмов
+                long rows = restored.getRows();
+                System.out.printf(Locale.ROOT, "%-6d %10d %10d %10.0f %10d %10d %12.0f %10d%n", round, rows,
+                        inserted.millis(), rows * 1000.0 / inserted.millis(), written.getMillis(),
+                        restored.getMillis(), rows * 1000.0 / restored.getMillis(), withReload);
+            }
+        }
+    }
+}
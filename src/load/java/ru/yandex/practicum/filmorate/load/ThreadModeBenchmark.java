@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Сравнение обработки запросов на пуле платформенных потоков Tomcat и на виртуальных потоках
+ * ({@code spring.threads.virtual.enabled}). Для каждого режима приложение запускается заново,
+ * заполняется одинаковыми данными и нагружается {@code load.clients} клиентами без пауз
+ * отдельно на /films/popular и на /films/{id}.
+ *
+ * <pre>
+ * mvn -P load test-compile exec:java -Dload.main=ru.yandex.practicum.filmorate.load.ThreadModeBenchmark \
+ *     -Dload.clients=2000 -Dload.duration=PT30S
+ * </pre>
+ */
+public final class ThreadModeBenchmark {
+    private static final int CLIENTS = Integer.getInteger("load.clients", 2000);
+    private static final Duration WARMUP = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT15S"));
+    private static final int USERS = Integer.getInteger("load.users", 1000);
+    private static final int FILMS = Integer.getInteger("load.films", 2000);
+    private static final int LIKES_PER_USER = Integer.getInteger("load.likes-per-user", 20);
+
+    private ThreadModeBenchmark() {
+    }
+
+    private record Result(String mode, String endpoint, long requests, long errors, double seconds,
+                          Histogram latency) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            String mode = virtual ? "virtual" : "platform";
+            try (LoadApplication application = LoadApplication.start("load-" + mode,
+                    "--spring.threads.virtual.enabled=" + virtual)) {
+                LoadClient client = new LoadClient(application);
+                new HttpDatasetSeeder(client, 42).seed(USERS, FILMS, LIKES_PER_USER);
+
+                results.add(run(client, mode, "/films/popular", i -> "/films/popular"));
+                results.add(run(client, mode, "/films/{id}", i -> "/films/" + (1 + i % FILMS)));
+            }
+        }
+
+        System.out.printf("%nclients=%d duration=%s users=%d films=%d%n", CLIENTS, DURATION, USERS, FILMS);
+        System.out.printf("%-9s %-15s %10s %7s %10s %8s %8s %8s%n",
+                "mode", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        for (Result result : results) {
+            System.out.printf("%-9s %-15s %10d %7d %10.0f %8.2f %8.2f %8.2f%n",
+                    result.mode(), result.endpoint(), result.requests(), result.errors(),
+                    result.requests() / result.seconds(),
+                    millis(result.latency().getValueAtPercentile(50)),
+                    millis(result.latency().getValueAtPercentile(99)),
+                    millis(result.latency().getMaxValue()));
+        }
+    }
+
+    private static Result run(LoadClient client, String mode, String endpoint, IntFunction<String> paths)
+            throws InterruptedException {
+        drive(client, paths, WARMUP, new ConcurrentHistogram(3), new LongAdder(), new LongAdder());
+
+        Histogram latency = new ConcurrentHistogram(3);
+        LongAdder requests = new LongAdder();
+        LongAdder errors = new LongAdder();
+        long started = System.nanoTime();
+        drive(client, paths, DURATION, latency, requests, errors);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        return new Result(mode, endpoint, requests.sum(), errors.sum(), seconds, latency);
+    }
+
+    private static void drive(LoadClient client, IntFunction<String> paths, Duration duration, Histogram latency,
+                              LongAdder requests, LongAdder errors) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Thread> clients = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() < deadline) {
+                    String path = paths.apply(ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE));
+                    long started = System.nanoTime();
+                    try {
+                        if (client.get(path) >= 400) {
+                            errors.increment();
+                        }
+                    } catch (Exception e) {
+                        errors.increment();
+                    }
+                    latency.recordValue((System.nanoTime() - started) / 1000);
+                    requests.increment();
+                }
+            }));
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
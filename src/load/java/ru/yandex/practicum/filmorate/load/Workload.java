@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.load;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Смесь запросов к API: операции с весами, из которых клиенты выбирают следующий запрос.
+ * Смесь задаётся именем готового набора ({@code default}, {@code read}, {@code write}) или списком
+ * {@code операция=вес} через запятую, например {@code popular=60,film=30,like=10}.
+ * Операции, меняющие данные, выбирают пары id так, чтобы не повторять уже существующие связи.
+ */
+public final class Workload {
+    private static final Map<String, String> PRESETS = Map.of(
+            "default", "popular=25,film=20,like=10,unlike=2,feed=10,user=3,friends=4,common-friends=1,"
+                    + "add-friend=1,search=4,reviews=8,add-review=1,review-vote=3,recommendations=4,"
+                    + "common-films=2,films-page=2",
+            "read", "popular=30,film=25,feed=10,user=5,friends=5,common-friends=2,search=5,reviews=8,"
+                    + "recommendations=5,common-films=3,films-page=2",
+            "write", "like=35,unlike=15,add-friend=15,add-review=10,review-vote=20,film=5");
+
+    private final List<Operation> operations;
+    private final int[] cumulativeWeights;
+
+    private Workload(List<Operation> operations) {
+        this.operations = operations;
+        this.cumulativeWeights = new int[operations.size()];
+        int sum = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            sum += operations.get(i).weight();
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    /**
+     * Размеры заполненной базы, от которых зависят id в запросах.
+     */
+    public record Dataset(int users, int films, int friendsPerUser, int reviewsPerFilm) {
+    }
+
+    @FunctionalInterface
+    public interface Call {
+        int execute(LoadClient client, ThreadLocalRandom random) throws Exception;
+    }
+
+    public record Operation(String name, String endpoint, int weight, Call call) {
+    }
+
+    public static Workload parse(String mix, Dataset dataset) {
+        Map<String, Operation> known = operations(dataset);
+        List<Operation> selected = new ArrayList<>();
+        for (String entry : PRESETS.getOrDefault(mix, mix).split(",")) {
+            String[] parts = entry.trim().split("=");
+            Operation operation = known.get(parts[0].trim());
+            if (operation == null || parts.length != 2) {
+                throw new IllegalArgumentException("Неизвестная операция смеси: " + entry
+                        + ", доступны " + known.keySet());
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                selected.add(new Operation(operation.name(), operation.endpoint(), weight, operation.call()));
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("Смесь запросов пуста: " + mix);
+        }
+        return new Workload(List.copyOf(selected));
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    public int next(ThreadLocalRandom random) {
+        int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (cumulativeWeights[index] <= point) {
+            index++;
+        }
+        return index;
+    }
+
+    private static Map<String, Operation> operations(Dataset dataset) {
+        int users = dataset.users();
+        int films = dataset.films();
+        long reviews = Math.max(1L, (long) films * dataset.reviewsPerFilm());
+        AtomicLong friendPairs = new AtomicLong();
+        AtomicLong reviewVotes = new AtomicLong();
+        String[] words = {"love", "night", "film", "star", "war", "city"};
+
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        add(operations, "popular", "GET /films/popular", (client, random) -> client.get("/films/popular?count=10"));
+        add(operations, "film", "GET /films/{id}", (client, random) -> client.get("/films/" + skewed(random, films)));
+        add(operations, "films-page", "GET /films?after&limit", (client, random) ->
+                client.get("/films?after=" + random.nextInt(films) + "&limit=50"));
+        add(operations, "like", "PUT /films/{id}/like/{userId}", (client, random) ->
+                client.put("/films/" + skewed(random, films) + "/like/" + (1 + random.nextInt(users))));
+        add(operations, "unlike", "DELETE /films/{id}/like/{userId}", (client, random) ->
+                client.delete("/films/" + skewed(random, films) + "/like/" + (1 + random.nextInt(users))));
+        add(operations, "search", "GET /films/search", (client, random) ->
+                client.get("/films/search?query=" + words[random.nextInt(words.length)] + "&by=title,director"));
+        add(operations, "common-films", "GET /films/common", (client, random) -> {
+            long userId = 1 + random.nextInt(users);
+            return client.get("/films/common?userId=" + userId + "&friendId=" + other(random, users, userId));
+        });
+        add(operations, "user", "GET /users/{id}", (client, random) ->
+                client.get("/users/" + (1 + random.nextInt(users))));
+        add(operations, "feed", "GET /users/{id}/feed", (client, random) ->
+                client.get("/users/" + (1 + random.nextInt(users)) + "/feed"));
+        add(operations, "friends", "GET /users/{id}/friends", (client, random) ->
+                client.get("/users/" + (1 + random.nextInt(users)) + "/friends"));
+        add(operations, "common-friends", "GET /users/{id}/friends/common/{otherId}", (client, random) -> {
+            long userId = 1 + random.nextInt(users);
+            return client.get("/users/" + userId + "/friends/common/" + other(random, users, userId));
+        });
+        add(operations, "add-friend", "PUT /users/{id}/friends/{friendId}", (client, random) -> {
+            // друзья из заполнения — следующие friendsPerUser пользователей, новые пары берутся дальше по кругу
+            long pair = friendPairs.getAndIncrement();
+            long userId = pair % users;
+            long free = Math.max(1, users - dataset.friendsPerUser() - 1);
+            long offset = dataset.friendsPerUser() + 1 + pair / users % free;
+            return client.put("/users/" + (1 + userId) + "/friends/" + (1 + (userId + offset) % users));
+        });
+        add(operations, "recommendations", "GET /users/{id}/recommendations", (client, random) ->
+                client.get("/users/" + (1 + random.nextInt(users)) + "/recommendations"));
+        add(operations, "reviews", "GET /reviews?filmId", (client, random) ->
+                client.get("/reviews?filmId=" + skewed(random, films) + "&count=10"));
+        add(operations, "add-review", "POST /reviews", (client, random) ->
+                client.post("/reviews", String.format("{\"content\":\"Load review\",\"isPositive\":%b,"
+                        + "\"userId\":%d,\"filmId\":%d}", random.nextBoolean(), 1 + random.nextInt(users),
+                        skewed(random, films))));
+        add(operations, "review-vote", "PUT /reviews/{id}/like|dislike/{userId}", (client, random) -> {
+            // каждая пара (отзыв, пользователь) голосует один раз: повторный голос — ошибка API
+            long vote = reviewVotes.getAndIncrement();
+            long reviewId = 1 + vote % reviews;
+            long userId = 1 + vote / reviews % users;
+            return client.put("/reviews/" + reviewId + (random.nextInt(3) > 0 ? "/like/" : "/dislike/") + userId);
+        });
+        return operations;
+    }
+
+    private static void add(Map<String, Operation> operations, String name, String endpoint, Call call) {
+        operations.put(name, new Operation(name, endpoint, 0, call));
+    }
+
+    private static long other(ThreadLocalRandom random, int users, long userId) {
+        return users < 2 ? userId : 1 + (userId + random.nextInt(users - 1)) % users;
+    }
+
+    /**
+     * Id фильма, смещённый к началу списка так же, как лайки при заполнении.
+     */
+    private static long skewed(ThreadLocalRandom random, int films) {
+        return 1 + (long) (random.nextDouble() * random.nextDouble() * films);
+    }
+}
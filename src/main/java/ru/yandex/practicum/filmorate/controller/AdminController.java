@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.QueryStats;
+import ru.yandex.practicum.filmorate.model.SnapshotStats;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SnapshotService;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final FilmService filmService;
+    private final QueryMetrics queryMetrics;
+    private final SnapshotService snapshotService;
+
+    @GetMapping("/cache/films")
+    public CacheStats getFilmCacheStats() {
+        return filmService.getCacheStats();
+    }
+
+    @GetMapping("/jdbc")
+    public List<QueryStats> getQueryStats() {
+        return queryMetrics.getStats();
+    }
+
+    @DeleteMapping("/jdbc")
+    public void resetQueryStats() {
+        queryMetrics.reset();
+    }
+
+    @PostMapping("/snapshot")
+    public SnapshotStats writeSnapshot(@RequestParam(defaultValue = "filmorate") String name) {
+        return snapshotService.write(name);
+    }
+
+    @PostMapping("/snapshot/restore")
+    public SnapshotStats restoreSnapshot(@RequestParam(defaultValue = "filmorate") String name) {
+        return snapshotService.restore(name);
+    }
+}
@@ -1,22 +1,37 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
+    private static final String NDJSON = "application/x-ndjson";
+
     private final FilmService filmService;
+    private final FilmImportService filmImportService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, FilmImportService filmImportService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.filmImportService = filmImportService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -24,6 +39,11 @@ public class FilmController {
         return filmService.create(film);
     }
 
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public FilmImportResult createAll(InputStream body) throws IOException {
+        return filmImportService.importFilms(body);
+    }
+
     @PutMapping
     public Film update(@Valid @RequestBody Film film) {
         return filmService.update(film);
@@ -35,8 +55,28 @@ public class FilmController {
     }
 
     @GetMapping
-    public Collection<Film> getFilms() {
-        return filmService.getFilms();
+    public Collection<Film> getFilms(@RequestParam(required = false) Long after,
+                                     @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return filmService.getFilms();
+        }
+        return filmService.getFilmsPage(after, limit);
+    }
+
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public StreamingResponseBody streamFilms(@RequestParam(required = false) Long after) {
+        return outputStream -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream)) {
+                filmService.streamFilms(after, film -> {
+                    try {
+                        writer.write(film);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                outputStream.write('\n');
+            }
+        };
     }
 
     @GetMapping("/search")
@@ -3,6 +3,8 @@ package ru.yandex.practicum.filmorate.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.annotation.Nonnegative;
@@ -30,6 +32,11 @@ public class FilmRatingsController {
         filmService.deleteLike(filmId, userId);
     }
 
+    @PostMapping("/likes")
+    public List<LikeOperationResult> applyLikes(@RequestBody List<LikeOperation> operations) {
+        return filmService.applyLikes(operations);
+    }
+
     @GetMapping("/popular")
     public List<Film> topFilms(@RequestParam(defaultValue = "10") @Nonnegative int count,
                                @RequestParam(required = false) Long genreId,
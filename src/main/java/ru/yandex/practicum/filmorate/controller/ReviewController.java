@@ -37,9 +37,11 @@ public class ReviewController {
 
     @GetMapping
     public Collection<Review> findAll(@RequestParam(required = false) Long filmId,
-                                      @RequestParam(value = "count", defaultValue = "10") @Min(value = 1) Integer limit) {
+                                      @RequestParam(value = "count", defaultValue = "10") @Min(value = 1) Integer limit,
+                                      @RequestParam(required = false) Integer afterUseful,
+                                      @RequestParam(required = false) Long afterId) {
 
-        return reviewService.findReviewsOfFilm(filmId, limit);
+        return reviewService.findReviewsOfFilm(filmId, afterUseful, afterId, limit);
 
     }
 
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.service.SnapshotService;
+
+import java.io.IOException;
+
+/**
+ * Отклоняет запросы с 503, пока данные восстанавливаются из снимка. Сам запрос на восстановление
+ * проходит мимо: он ждёт, пока доработают уже начатые запросы.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SnapshotRestoreFilter extends OncePerRequestFilter {
+    static final String RESTORE_PATH = "/admin/snapshot/restore";
+
+    private final SnapshotService snapshotService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (RESTORE_PATH.equals(request.getRequestURI())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!snapshotService.beginRequest()) {
+            log.warn("Запрос {} {} отклонён: идёт восстановление из снимка", request.getMethod(),
+                    request.getRequestURI());
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Идёт восстановление данных из снимка");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            snapshotService.endRequest();
+        }
+    }
+}
@@ -40,8 +40,12 @@ public class UserController {
     }
 
     @GetMapping("/{id}/feed")
-    public Collection<UserEvent> getFeed(@PathVariable Long id) {
-        return userService.getFeed(id);
+    public Collection<UserEvent> getFeed(@PathVariable Long id,
+                                         @RequestParam(required = false) Integer limit) {
+        if (limit == null) {
+            return userService.getFeed(id);
+        }
+        return userService.getFeed(id, limit);
     }
 
     @DeleteMapping("/{id}")
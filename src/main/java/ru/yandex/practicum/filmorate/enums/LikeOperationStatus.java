@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.enums;
+
+public enum LikeOperationStatus {
+    APPLIED,     // лайк поставлен или снят
+    UNCHANGED,   // лайк уже был в нужном состоянии
+    DUPLICATE,   // за ней в пакете та же операция той же пары фильм-пользователь
+    COALESCED,   // за ней в пакете противоположная операция той же пары
+    NOT_FOUND,
+    INVALID
+}
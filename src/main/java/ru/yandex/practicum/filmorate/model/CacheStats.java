@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class CacheStats {
+    private long size;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long loads;
+    private long loadFailures;
+    private double averageLoadMillis;
+    private long evictions;
+}
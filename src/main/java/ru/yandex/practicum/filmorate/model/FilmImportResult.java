@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Итог массовой загрузки фильмов. {@code ids} идут в порядке записей запроса, у отклонённых записей
+ * на месте id стоит null, а причина лежит в {@code errors} с тем же индексом записи.
+ */
+@Data
+public class FilmImportResult {
+    private int created;
+    private int failed;
+    private final List<Long> ids = new ArrayList<>();
+    private final List<FilmImportError> errors = new ArrayList<>();
+
+    public void addCreated(long id) {
+        ids.add(id);
+        created++;
+    }
+
+    public void addFailed(int index, String message) {
+        ids.add(null);
+        errors.add(new FilmImportError(index, message));
+        failed++;
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Set;
+
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+public class FilmPopularity {
+    private Long filmId;
+    private int likes;
+    private Integer year;
+    private Set<Long> genreIds;
+}
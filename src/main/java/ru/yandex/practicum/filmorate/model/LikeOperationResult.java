@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.enums.LikeOperationStatus;
+import ru.yandex.practicum.filmorate.enums.Operation;
+
+@Data
+@AllArgsConstructor
+public class LikeOperationResult {
+    private Long filmId;
+    private Long userId;
+    private Operation op;
+    private LikeOperationStatus status;
+    private String message;
+}
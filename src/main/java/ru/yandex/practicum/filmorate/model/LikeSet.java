@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * Неизменяемое множество id пользователей, поставивших лайк, в виде отсортированного массива long.
+ * В JSON выглядит как обычный массив чисел.
+ */
+@JsonSerialize(using = LikeSet.Serializer.class)
+@JsonDeserialize(using = LikeSet.Deserializer.class)
+public final class LikeSet {
+    private static final LikeSet EMPTY = new LikeSet(new long[0]);
+
+    private final long[] userIds;
+
+    private LikeSet(long[] userIds) {
+        this.userIds = userIds;
+    }
+
+    public static LikeSet empty() {
+        return EMPTY;
+    }
+
+    public static LikeSet of(long... userIds) {
+        if (userIds.length == 0) {
+            return EMPTY;
+        }
+        long[] sorted = userIds.clone();
+        Arrays.sort(sorted);
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return new LikeSet(size == sorted.length ? sorted : Arrays.copyOf(sorted, size));
+    }
+
+    public int size() {
+        return userIds.length;
+    }
+
+    public boolean isEmpty() {
+        return userIds.length == 0;
+    }
+
+    public boolean contains(long userId) {
+        return Arrays.binarySearch(userIds, userId) >= 0;
+    }
+
+    public LongStream stream() {
+        return Arrays.stream(userIds);
+    }
+
+    public long[] toArray() {
+        return userIds.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof LikeSet other && Arrays.equals(userIds, other.userIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(userIds);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(userIds);
+    }
+
+    public static class Serializer extends JsonSerializer<LikeSet> {
+        @Override
+        public void serialize(LikeSet value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeArray(value.userIds, 0, value.userIds.length);
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<LikeSet> {
+        @Override
+        public LikeSet deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return LikeSet.of(ctxt.readValue(p, long[].class));
+        }
+    }
+}
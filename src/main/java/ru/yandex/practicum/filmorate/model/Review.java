@@ -25,21 +25,4 @@ public class Review {
     private Long filmId;
 
     private int useful;
-
-    public void addLike() {
-        useful++;
-    }
-
-    public void addDislike() {
-        useful--;
-    }
-
-    public void removeLike() {
-        useful--;
-    }
-
-    public void removeDislike() {
-        useful++;
-    }
-
 }
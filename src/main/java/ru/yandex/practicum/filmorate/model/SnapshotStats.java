@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class SnapshotStats {
+    private String file;
+    private long bytes;
+    private long rows;
+    private long millis;
+    private Map<String, Long> tables;
+}
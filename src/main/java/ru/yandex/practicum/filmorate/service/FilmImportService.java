@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Массовая загрузка фильмов из NDJSON или JSON-массива. Записи читаются из потока по одной,
+ * проверяются аннотациями модели и справочниками в памяти, а корректные записываются пачками
+ * по {@code chunkSize} фильмов, каждая пачка — в своей транзакции. В памяти одновременно держится
+ * не больше одной пачки. Ошибка в записи или в пачке не прерывает загрузку остальных записей.
+ */
+@Slf4j
+@Service
+public class FilmImportService {
+    private final FilmStorage filmStorage;
+    private final MpaStorage mpaStorage;
+    private final GenreStorage genreStorage;
+    private final DirectorStorage directorStorage;
+    private final FilmLeaderboardService leaderboard;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public FilmImportService(FilmStorage filmStorage,
+                             MpaStorage mpaStorage,
+                             GenreStorage genreStorage,
+                             DirectorStorage directorStorage,
+                             FilmLeaderboardService leaderboard,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             @Value("${filmorate.films.import.chunk-size:1000}") int chunkSize) {
+        this.filmStorage = filmStorage;
+        this.mpaStorage = mpaStorage;
+        this.genreStorage = genreStorage;
+        this.directorStorage = directorStorage;
+        this.leaderboard = leaderboard;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Запись пачки: либо фильм для вставки, либо причина отказа.
+     */
+    private record Entry(int index, Film film, String error) {
+    }
+
+    public FilmImportResult importFilms(InputStream body) throws IOException {
+        long started = System.currentTimeMillis();
+        FilmImportResult result = new FilmImportResult();
+        List<Entry> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        try (MappingIterator<JsonNode> records = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            while (records.hasNextValue()) {
+                JsonNode node = records.nextValue();
+                chunk.add(parse(index++, node));
+                if (chunk.size() == chunkSize) {
+                    flush(chunk, result);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // дальше запись потока не разобрать: всё прочитанное до неё загружаем, остальное отклоняем
+            log.warn("Массовая загрузка фильмов остановлена на записи {}: {}", index, e.getOriginalMessage());
+            chunk.add(new Entry(index, null, "Некорректный JSON: " + e.getOriginalMessage()));
+        }
+        flush(chunk, result);
+
+        log.info("Массовая загрузка фильмов: добавлено {}, отклонено {} за {} мс",
+                result.getCreated(), result.getFailed(), System.currentTimeMillis() - started);
+        return result;
+    }
+
+    private Entry parse(int index, JsonNode node) {
+        Film film;
+        try {
+            film = objectMapper.treeToValue(node, Film.class);
+        } catch (JsonProcessingException e) {
+            return new Entry(index, null, "Некорректная запись: " + e.getOriginalMessage());
+        }
+        if (film == null) {
+            return new Entry(index, null, "Пустая запись");
+        }
+        String error = validate(film);
+        if (error != null) {
+            return new Entry(index, null, error);
+        }
+        film.setId(null);
+        return new Entry(index, film, null);
+    }
+
+    private String validate(Film film) {
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ", "Ошибка валидации: ", ""));
+        }
+        // обязательные в схеме films поля, которые не проверяются аннотациями модели
+        if (film.getReleaseDate() == null) {
+            return "Ошибка валидации: releaseDate: Дата релиза обязательна";
+        }
+        if (film.getDescription() == null) {
+            return "Ошибка валидации: description: Описание обязательно";
+        }
+        if (film.getMpa() != null && !mpaStorage.isMpaExists(film.getMpa().getId())) {
+            return "Рейтинг фильма не найден " + film.getMpa().getId();
+        }
+        List<Long> genreIds = film.getGenres().stream().map(Genre::getId).toList();
+        if (!genreStorage.areGenresExist(genreIds)) {
+            return "Жанры не найдены: " + genreIds;
+        }
+        if (film.getDirectors() != null) {
+            for (Director director : film.getDirectors()) {
+                if (!directorStorage.isDirectorExist(director.getId())) {
+                    return "Директор фильма не найден " + director.getId();
+                }
+            }
+        }
+        return null;
+    }
+
+    private void flush(List<Entry> chunk, FilmImportResult result) {
+        List<Film> films = chunk.stream().map(Entry::film).filter(Objects::nonNull).toList();
+        Map<Film, String> failures = new IdentityHashMap<>();
+        try {
+            filmStorage.createAll(films);
+        } catch (DataAccessException e) {
+            // пачка откатилась целиком: чтобы отклонить только виновные записи, пишем её по одному фильму
+            log.warn("Пачка из {} фильмов не записана, записываем по одному: {}", films.size(),
+                    e.getMostSpecificCause().getMessage());
+            for (Film film : films) {
+                try {
+                    film.setId(null);
+                    filmStorage.createAll(List.of(film));
+                } catch (DataAccessException filmError) {
+                    failures.put(film, "Фильм не записан: " + filmError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        for (Entry entry : chunk) {
+            String error = entry.error() != null ? entry.error() : failures.get(entry.film());
+            if (error != null) {
+                result.addFailed(entry.index(), error);
+            } else {
+                leaderboard.put(entry.film());
+                result.addCreated(entry.film().getId());
+            }
+        }
+        chunk.clear();
+    }
+}
@@ -0,0 +1,269 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPopularity;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.DataReloadedEvent;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Рейтинги популярности фильмов в памяти: общий, по жанрам, по годам выхода и по жанру в году.
+ * Чтение не берёт блокировок; лайки обновляют позицию одного фильма, а полная перестройка
+ * подменяет все рейтинги разом и не пересекается с записью лайков в БД.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FilmLeaderboardService {
+    private static final Comparator<Rank> BY_POPULARITY = Comparator.comparingInt(Rank::likes).reversed()
+            .thenComparingLong(Rank::filmId);
+
+    private static final int OPTIMISTIC_READS = 4;
+
+    private final FilmStorage filmStorage;
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private volatile Boards boards = new Boards();
+    private volatile boolean ready;
+
+    private record Rank(long filmId, int likes) {
+    }
+
+    private record Placement(Rank rank, int year, Set<Long> genreIds) {
+    }
+
+    private record GenreYear(long genreId, int year) {
+    }
+
+    private static class Boards {
+        final NavigableSet<Rank> global = new ConcurrentSkipListSet<>(BY_POPULARITY);
+        final ConcurrentMap<Long, NavigableSet<Rank>> byGenre = new ConcurrentHashMap<>();
+        final ConcurrentMap<Integer, NavigableSet<Rank>> byYear = new ConcurrentHashMap<>();
+        final ConcurrentMap<GenreYear, NavigableSet<Rank>> byGenreYear = new ConcurrentHashMap<>();
+        final ConcurrentMap<Long, Placement> placements = new ConcurrentHashMap<>();
+
+        /** Счётчики начатых и завершённых изменений: читатель без блокировки по ним узнаёт, что попал на изменение. */
+        final AtomicLong changesStarted = new AtomicLong();
+        final AtomicLong changesFinished = new AtomicLong();
+
+        void link(Placement placement) {
+            boardsOf(placement, true).forEach(board -> board.add(placement.rank()));
+        }
+
+        /**
+         * Переносит фильм со старой позиции на новую: сначала новая позиция попадает во все рейтинги,
+         * и только потом старая убирается, так что читатель не застаёт фильм пропавшим.
+         */
+        void relink(Placement old, Placement next) {
+            List<NavigableSet<Rank>> linked = next == null ? List.of() : boardsOf(next, true);
+            linked.forEach(board -> board.add(next.rank()));
+            if (old == null) {
+                return;
+            }
+            for (NavigableSet<Rank> board : boardsOf(old, false)) {
+                boolean kept = next != null && old.rank().equals(next.rank())
+                        && linked.stream().anyMatch(linkedBoard -> linkedBoard == board);
+                if (!kept) {
+                    board.remove(old.rank());
+                }
+            }
+        }
+
+        private List<NavigableSet<Rank>> boardsOf(Placement placement, boolean create) {
+            List<NavigableSet<Rank>> found = new ArrayList<>(2 + 2 * placement.genreIds().size());
+            found.add(global);
+            found.add(board(byYear, placement.year(), create));
+            placement.genreIds().forEach(genreId -> {
+                found.add(board(byGenre, genreId, create));
+                found.add(board(byGenreYear, new GenreYear(genreId, placement.year()), create));
+            });
+            found.removeIf(Objects::isNull);
+            return found;
+        }
+
+        private static <K> NavigableSet<Rank> board(ConcurrentMap<K, NavigableSet<Rank>> boards, K key,
+                                                    boolean create) {
+            return create ? boards.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(BY_POPULARITY))
+                    : boards.get(key);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Топ фильмов без блокировки: если во время чтения менялась позиция какого-то фильма, чтение повторяется,
+     * а после нескольких неудач выполняется под блокировкой перестройки.
+     */
+    public List<Long> getTopFilmIds(int count, Long genreId, Integer year) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            Boards current = boards;
+            long finished = current.changesFinished.get();
+            if (current.changesStarted.get() != finished) {
+                Thread.onSpinWait();
+                continue;
+            }
+            List<Long> filmIds = readTop(current, count, genreId, year);
+            if (current.changesStarted.get() == finished) {
+                return filmIds;
+            }
+        }
+        rebuildLock.writeLock().lock();
+        try {
+            return readTop(boards, count, genreId, year);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    private static List<Long> readTop(Boards current, int count, Long genreId, Integer year) {
+        NavigableSet<Rank> board;
+        if (genreId != null && year != null) {
+            board = current.byGenreYear.get(new GenreYear(genreId, year));
+        } else if (genreId != null) {
+            board = current.byGenre.get(genreId);
+        } else if (year != null) {
+            board = current.byYear.get(year);
+        } else {
+            board = current.global;
+        }
+        if (board == null) {
+            return List.of();
+        }
+
+        List<Long> filmIds = new ArrayList<>(Math.min(count, 64));
+        Set<Long> seen = new HashSet<>();
+        for (Rank rank : board) {
+            if (filmIds.size() >= count) {
+                break;
+            }
+            Placement placement = current.placements.get(rank.filmId());
+            // старая позиция фильма, который прямо сейчас переносится на новую
+            if (placement == null || !placement.rank().equals(rank)) {
+                continue;
+            }
+            if (seen.add(rank.filmId())) {
+                filmIds.add(rank.filmId());
+            }
+        }
+        return filmIds;
+    }
+
+    public void put(Film film) {
+        Set<Long> genreIds = film.getGenres().stream().map(Genre::getId).collect(Collectors.toUnmodifiableSet());
+        int year = film.getReleaseDate().getYear();
+        update(film.getId(), old -> new Placement(old == null ? new Rank(film.getId(), 0) : old.rank(), year, genreIds));
+    }
+
+    public void changeLikes(Long filmId, int delta) {
+        update(filmId, old -> old == null ? null
+                : new Placement(new Rank(filmId, old.rank().likes() + delta), old.year(), old.genreIds()));
+    }
+
+    public void remove(Long filmId) {
+        update(filmId, old -> null);
+    }
+
+    /**
+     * Выполняет запись лайков в БД вместе с изменением рейтинга. Перестройка ждёт, пока такие записи
+     * закончатся, поэтому лайк не может попасть в рейтинг дважды: и из прочитанного ею счётчика, и приращением.
+     */
+    public <T> T withLikes(Supplier<T> change) {
+        rebuildLock.readLock().lock();
+        try {
+            return change.get();
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void update(Long filmId, UnaryOperator<Placement> change) {
+        rebuildLock.readLock().lock();
+        try {
+            Boards current = boards;
+            current.changesStarted.incrementAndGet();
+            try {
+                current.placements.compute(filmId, (id, old) -> {
+                    Placement next = change.apply(old);
+                    current.relink(old, next);
+                    return next;
+                });
+            } finally {
+                current.changesFinished.incrementAndGet();
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    @EventListener({ApplicationReadyEvent.class, DataReloadedEvent.class})
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            Boards rebuilt = new Boards();
+            for (FilmPopularity film : filmStorage.getFilmsPopularity()) {
+                Placement placement = toPlacement(film);
+                rebuilt.placements.put(film.getFilmId(), placement);
+                rebuilt.link(placement);
+            }
+            boards = rebuilt;
+            ready = true;
+            log.info("Рейтинг популярности построен, фильмов: {}", rebuilt.placements.size());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.leaderboard.verify-interval-ms:600000}",
+            initialDelayString = "${filmorate.leaderboard.verify-interval-ms:600000}")
+    public void verify() {
+        Set<Long> mismatched = findMismatches();
+        if (!mismatched.isEmpty()) {
+            // лайк мог попасть в БД, но ещё не в рейтинг — расхождение подтверждаем повторной сверкой
+            mismatched.retainAll(findMismatches());
+        }
+
+        if (mismatched.isEmpty()) {
+            log.debug("Рейтинг популярности совпадает с БД");
+        } else {
+            log.warn("Рейтинг популярности расходится с БД для фильмов {}, выполняется перестройка", mismatched);
+            rebuild();
+        }
+    }
+
+    private Set<Long> findMismatches() {
+        Map<Long, Placement> expected = filmStorage.getFilmsPopularity().stream()
+                .collect(Collectors.toMap(FilmPopularity::getFilmId, FilmLeaderboardService::toPlacement));
+        Map<Long, Placement> actual = boards.placements;
+
+        Set<Long> mismatched = new HashSet<>();
+        expected.forEach((filmId, placement) -> {
+            if (!placement.equals(actual.get(filmId))) {
+                mismatched.add(filmId);
+            }
+        });
+        actual.keySet().stream().filter(filmId -> !expected.containsKey(filmId)).forEach(mismatched::add);
+        return mismatched;
+    }
+
+    private static Placement toPlacement(FilmPopularity film) {
+        return new Placement(new Rank(film.getFilmId(), film.getLikes()), film.getYear(), Set.copyOf(film.getGenreIds()));
+    }
+}
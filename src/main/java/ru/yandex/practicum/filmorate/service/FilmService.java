@@ -2,37 +2,67 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.enums.EventType;
+import ru.yandex.practicum.filmorate.enums.LikeOperationStatus;
 import ru.yandex.practicum.filmorate.enums.Operation;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.CacheStats;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.model.UserEvent;
 import ru.yandex.practicum.filmorate.storage.*;
 import ru.yandex.practicum.filmorate.utils.FilmSorter;
+import ru.yandex.practicum.filmorate.utils.SortedArrays;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @AllArgsConstructor
 public class FilmService {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_LIKE_OPERATIONS = 10_000;
+    private static final Comparator<Film> BY_LIKES_DESC = Comparator
+            .comparingInt((Film film) -> film.getLikes().size()).reversed()
+            .thenComparing(Film::getId);
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final MpaStorage mpaStorage;
     private final GenreStorage genreStorage;
     private final FeedStorage feedStorage;
     private final DirectorStorage directorStorage;
+    private final FilmLeaderboardService leaderboard;
+    private final FilmCache filmCache;
+    private final FilmSearchIndex searchIndex;
+    private final LikeMatrix likeMatrix;
 
     public Film create(Film film) {
         checkMpaExist(film);
         checkGenresExist(film);
 
         filmStorage.create(film);
+        leaderboard.put(film);
         log.info("Добавлен новый фильм \"{}\" c id {}", film.getName(), film.getId());
 
         return film;
@@ -44,6 +74,7 @@ public class FilmService {
         checkGenresExist(film);
 
         filmStorage.update(film);
+        leaderboard.put(film);
         log.info("Фильм c id {} обновлен", film.getId());
 
         return film;
@@ -52,7 +83,9 @@ public class FilmService {
     public Film findById(Long filmId) {
         log.debug("Начат поиск фильма по id={}.", filmId);
 
-        return checkFilmExist(filmId);
+        checkFilmExist(filmId);
+
+        return filmStorage.findById(filmId);
     }
 
     public Collection<Film> getFilms() {
@@ -61,10 +94,36 @@ public class FilmService {
         return filmStorage.getFilms();
     }
 
+    public List<Film> getFilmsPage(Long afterId, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            log.error("Некорректный размер страницы {}", limit);
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        log.info("Вывод страницы фильмов после id={}, размер {}.", afterId, pageSize);
+
+        return filmStorage.getFilmsPage(afterId == null ? 0 : afterId, pageSize);
+    }
+
+    public void streamFilms(Long afterId, Consumer<Film> consumer) {
+        log.info("Потоковый вывод фильмов после id={}.", afterId);
+
+        filmStorage.streamFilms(afterId == null ? 0 : afterId, consumer);
+    }
+
     public void addLike(Long filmId, Long userId) {
         checkFilmExist(filmId);
         checkUserExist(userId);
-        filmStorage.addLikeByUser(filmId, userId);
+        boolean added = leaderboard.withLikes(() -> {
+            boolean changed = filmStorage.addLikeByUser(filmId, userId);
+            if (changed) {
+                leaderboard.changeLikes(filmId, 1);
+            }
+            return changed;
+        });
+        if (added) {
+            likeMatrix.addLike(filmId, userId);
+        }
         log.info("Пользователь {} поставил лайк фильму \"{}\"", userId, filmId);
 
         addEventToFeed(userId, filmId, Operation.ADD);
@@ -73,12 +132,115 @@ public class FilmService {
     public void deleteLike(Long filmId, Long userId) {
         checkFilmExist(filmId);
         checkUserExist(userId);
-        filmStorage.removeLike(filmId, userId);
+        boolean removed = leaderboard.withLikes(() -> {
+            boolean changed = filmStorage.removeLike(filmId, userId);
+            if (changed) {
+                leaderboard.changeLikes(filmId, -1);
+            }
+            return changed;
+        });
+        if (removed) {
+            likeMatrix.removeLike(filmId, userId);
+        }
         log.info("Пользователь {} удалил лайк фильму \"{}\"", userId, filmId);
 
         addEventToFeed(userId, filmId, Operation.REMOVE);
     }
 
+    private record LikeKey(long filmId, long userId) {
+    }
+
+    /**
+     * Пакет лайков и их отмен, например накопленных клиентом офлайн. Для каждой пары фильм-пользователь
+     * применяется только последняя операция пакета, каждая более ранняя помечается как повтор
+     * или перекрытая следующей операцией той же пары.
+     * Результаты возвращаются в порядке операций.
+     */
+    public List<LikeOperationResult> applyLikes(List<LikeOperation> operations) {
+        if (operations.size() > MAX_LIKE_OPERATIONS) {
+            log.error("Слишком много операций с лайками в пакете: {}", operations.size());
+            throw new ValidationException("В пакете должно быть не больше " + MAX_LIKE_OPERATIONS + " операций");
+        }
+        if (operations.stream().anyMatch(Objects::isNull)) {
+            log.error("Пустая операция в пакете операций с лайками");
+            throw new ValidationException("Операция в пакете не должна быть пустой");
+        }
+        LikeOperationResult[] results = new LikeOperationResult[operations.size()];
+        Map<LikeKey, Integer> latest = new HashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            results[i] = rejectLikeOperation(operation);
+            if (results[i] != null) {
+                continue;
+            }
+            Integer previous = latest.put(new LikeKey(operation.getFilmId(), operation.getUserId()), i);
+            if (previous != null) {
+                LikeOperation superseded = operations.get(previous);
+                results[previous] = likeResult(superseded, superseded.getOp() == operation.getOp()
+                        ? LikeOperationStatus.DUPLICATE : LikeOperationStatus.COALESCED, null);
+            }
+        }
+
+        List<Integer> indexes = latest.values().stream().sorted().toList();
+        List<LikeOperation> applied = indexes.stream().map(operations::get).toList();
+        boolean[] changed = leaderboard.withLikes(() -> {
+            boolean[] stored = filmStorage.applyLikes(applied);
+            for (int i = 0; i < applied.size(); i++) {
+                LikeOperation operation = applied.get(i);
+                if (stored[i]) {
+                    leaderboard.changeLikes(operation.getFilmId(), operation.getOp() == Operation.ADD ? 1 : -1);
+                }
+            }
+            return stored;
+        });
+
+        List<UserEvent> events = new ArrayList<>(applied.size());
+        for (int i = 0; i < applied.size(); i++) {
+            LikeOperation operation = applied.get(i);
+            if (changed[i] && operation.getOp() == Operation.ADD) {
+                likeMatrix.addLike(operation.getFilmId(), operation.getUserId());
+            } else if (changed[i]) {
+                likeMatrix.removeLike(operation.getFilmId(), operation.getUserId());
+            }
+            results[indexes.get(i)] = likeResult(operation,
+                    changed[i] ? LikeOperationStatus.APPLIED : LikeOperationStatus.UNCHANGED, null);
+            events.add(UserEvent.builder()
+                    .userId(operation.getUserId())
+                    .eventType(EventType.LIKE)
+                    .operation(operation.getOp())
+                    .entityId(operation.getFilmId())
+                    .build());
+        }
+        feedStorage.addEventsToFeed(events);
+
+        log.info("Пакет операций с лайками: {} операций, применено {}, событий в ленте {}", operations.size(),
+                Arrays.stream(results).filter(result -> result.getStatus() == LikeOperationStatus.APPLIED).count(),
+                events.size());
+        return Arrays.asList(results);
+    }
+
+    private LikeOperationResult rejectLikeOperation(LikeOperation operation) {
+        if (operation.getFilmId() == null || operation.getUserId() == null
+                || (operation.getOp() != Operation.ADD && operation.getOp() != Operation.REMOVE)) {
+            return likeResult(operation, LikeOperationStatus.INVALID, "Нужны filmId, userId и op ADD или REMOVE");
+        }
+        if (!filmStorage.isFilmExists(operation.getFilmId())) {
+            return likeResult(operation, LikeOperationStatus.NOT_FOUND,
+                    "Фильм c id: " + operation.getFilmId() + " не найден");
+        }
+        if (!userStorage.isUserExists(operation.getUserId())) {
+            return likeResult(operation, LikeOperationStatus.NOT_FOUND,
+                    "Пользователь с id " + operation.getUserId() + " не найден");
+        }
+        return null;
+    }
+
+    private static LikeOperationResult likeResult(LikeOperation operation, LikeOperationStatus status,
+                                                  String message) {
+        return new LikeOperationResult(operation.getFilmId(), operation.getUserId(), operation.getOp(), status,
+                message);
+    }
+
     private void addEventToFeed(Long userId, Long filmId, Operation operation) {
         feedStorage.addEventToFeed(userId, EventType.LIKE, operation, filmId);
         log.info("Событие добавлено в ленту: пользователь с id: {} {} лайк у фильма с id: {}", userId, operation, filmId);
@@ -92,7 +254,9 @@ public class FilmService {
             log.error("Несуществующий год фильма {}", year);
             throw new ValidationException("Несуществующий год фильма " + year);
         }
-        List<Film> filmList = filmStorage.getTopFilms(count, genreId, year).stream().toList();
+        List<Film> filmList = leaderboard.isReady()
+                ? filmStorage.findByIds(leaderboard.getTopFilmIds(count, genreId, year))
+                : filmStorage.getTopFilms(count, genreId, year).stream().toList();
 
         log.info("Отправлен список всех фильмов.");
         log.debug("{}", filmList);
@@ -104,7 +268,17 @@ public class FilmService {
         checkUserExist(userId);
         checkUserExist(friendId);
 
-        List<Film> filmList = filmStorage.getCommonFilms(userId, friendId).stream().toList();
+        List<Film> filmList;
+        if (likeMatrix.isReady()) {
+            long[] common = SortedArrays.intersection(likeMatrix.getLikedFilms(userId), likeMatrix.getLikedFilms(friendId));
+            List<Long> filmIds = Arrays.stream(common).boxed()
+                    .sorted(Comparator.comparingInt((Long filmId) -> likeMatrix.getLikeCount(filmId)).reversed()
+                            .thenComparing(Comparator.naturalOrder()))
+                    .toList();
+            filmList = filmStorage.findByIds(filmIds);
+        } else {
+            filmList = filmStorage.getCommonFilms(userId, friendId).stream().toList();
+        }
 
         log.info("Отправлен список общих фильмов Пользователя {} и Пользователя {}", userId, friendId);
         return filmList;
@@ -124,21 +298,34 @@ public class FilmService {
     public void delete(Long id) {
         checkFilmExist(id);
         filmStorage.delete(id);
+        leaderboard.remove(id);
+        likeMatrix.removeFilm(id);
         log.info("Был удалён фильм с id: {}", id);
     }
 
     public void deleteAll() {
         filmStorage.deleteAll();
+        leaderboard.rebuild();
+        likeMatrix.rebuild();
         log.info("Таблица film была очищена");
     }
 
-    private Film checkFilmExist(Long filmId) {
+    public CacheStats getCacheStats() {
+        return filmCache.getStats();
+    }
+
+    @EventListener({ApplicationReadyEvent.class, DataReloadedEvent.class})
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void reconcileLikeCounters() {
+        int fixed = filmStorage.reconcileLikeCounters();
+        log.info("Счётчики лайков сверены с таблицей likes, исправлено фильмов: {}", fixed);
+    }
+
+    private void checkFilmExist(Long filmId) {
         if (!filmStorage.isFilmExists(filmId)) {
             log.error("Фильм c id:{} не найден", filmId);
             throw new NotFoundException("Фильм c id: " + filmId + " не найден");
         }
-
-        return filmStorage.findById(filmId);
     }
 
     private void checkUserExist(Long userId) {
@@ -210,12 +397,22 @@ public class FilmService {
             }
         }
 
+        if (!searchByTitle && !searchByDirector) {
+            return getTopFilms(10, null, null);
+        }
+        if (searchIndex.isReady()) {
+            Set<Long> filmIds = searchIndex.search(query, searchByTitle, searchByDirector);
+            return filmStorage.findByIds(new ArrayList<>(filmIds)).stream()
+                    .sorted(BY_LIKES_DESC)
+                    .toList();
+        }
+
         if (searchByTitle && searchByDirector) {
             return filmStorage.searchByBoth(query);
         } else if (searchByTitle) {
             return filmStorage.searchByTitle(query);
-        } else if (searchByDirector) {
+        } else {
             return filmStorage.searchByDirector(query);
-        } else return getTopFilms(10, null,null);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.DataReloadedEvent;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.utils.SortedArrays;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Граф дружбы в памяти. Дружба односторонняя, поэтому для каждого пользователя хранятся
+ * отсортированные массивы тех, кого он добавил, и тех, кто добавил его; массивы не изменяются,
+ * а заменяются копиями.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FriendshipGraph {
+    private final UserStorage userStorage;
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private volatile Adjacency adjacency = new Adjacency();
+    private volatile boolean ready;
+
+    private static class Adjacency {
+        final ConcurrentMap<Long, long[]> friends = new ConcurrentHashMap<>();
+        final ConcurrentMap<Long, long[]> followers = new ConcurrentHashMap<>();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long[] getFriends(long userId) {
+        return adjacency.friends.getOrDefault(userId, SortedArrays.empty());
+    }
+
+    public long[] getCommonFriends(long userId, long otherId) {
+        return SortedArrays.intersection(getFriends(userId), getFriends(otherId));
+    }
+
+    public void addFriend(Long userId, Long friendId) {
+        update(current -> {
+            current.friends.merge(userId, new long[]{friendId},
+                    (friends, ignored) -> SortedArrays.insert(friends, friendId));
+            current.followers.merge(friendId, new long[]{userId},
+                    (followers, ignored) -> SortedArrays.insert(followers, userId));
+        });
+    }
+
+    public void deleteFriend(Long userId, Long friendId) {
+        update(current -> {
+            current.friends.computeIfPresent(userId,
+                    (id, friends) -> nullIfEmpty(SortedArrays.remove(friends, friendId)));
+            current.followers.computeIfPresent(friendId,
+                    (id, followers) -> nullIfEmpty(SortedArrays.remove(followers, userId)));
+        });
+    }
+
+    public void removeUser(Long userId) {
+        update(current -> {
+            long[] friends = current.friends.remove(userId);
+            if (friends != null) {
+                for (long friendId : friends) {
+                    current.followers.computeIfPresent(friendId,
+                            (id, followers) -> nullIfEmpty(SortedArrays.remove(followers, userId)));
+                }
+            }
+            long[] followers = current.followers.remove(userId);
+            if (followers != null) {
+                for (long followerId : followers) {
+                    current.friends.computeIfPresent(followerId,
+                            (id, ids) -> nullIfEmpty(SortedArrays.remove(ids, userId)));
+                }
+            }
+        });
+    }
+
+    private void update(Consumer<Adjacency> change) {
+        rebuildLock.readLock().lock();
+        try {
+            change.accept(adjacency);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private static long[] nullIfEmpty(long[] values) {
+        return values.length == 0 ? null : values;
+    }
+
+    @EventListener({ApplicationReadyEvent.class, DataReloadedEvent.class})
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            Adjacency rebuilt = new Adjacency();
+            Map<Long, long[]> friends = userStorage.getFriendIdsByUser();
+            rebuilt.friends.putAll(friends);
+
+            Map<Long, Integer> followerCounts = new HashMap<>();
+            friends.values().forEach(ids -> {
+                for (long friendId : ids) {
+                    followerCounts.merge(friendId, 1, Integer::sum);
+                }
+            });
+            Map<Long, long[]> followers = new HashMap<>();
+            Map<Long, Integer> filled = new HashMap<>();
+            followerCounts.forEach((friendId, count) -> followers.put(friendId, new long[count]));
+            new TreeMap<>(friends).forEach((userId, ids) -> {
+                for (long friendId : ids) {
+                    followers.get(friendId)[filled.merge(friendId, 1, Integer::sum) - 1] = userId;
+                }
+            });
+            rebuilt.followers.putAll(followers);
+
+            adjacency = rebuilt;
+            ready = true;
+            log.info("Граф дружбы построен: пользователей с друзьями {}", rebuilt.friends.size());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+}
@@ -14,6 +14,7 @@ import java.util.Collection;
 @Slf4j
 public class GenreService {
     private final GenreStorage genreStorage;
+    private final FilmLeaderboardService leaderboard;
 
     public Collection<Genre> getAllGenre() {
         log.info("Возвращен список всех жанров фильмов.");
@@ -35,11 +36,13 @@ public class GenreService {
         checkGenreExist(id);
 
         genreStorage.delete(id);
+        leaderboard.rebuild();
         log.info("Был удалён жанр с id: {}", id);
     }
 
     public void deleteAll() {
         genreStorage.deleteAll();
+        leaderboard.rebuild();
         log.info("Таблица genre была очищена");
     }
 
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.DataReloadedEvent;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.utils.SortedArrays;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Таблица likes в памяти как разреженная матрица пользователь × фильм: для каждого пользователя
+ * и каждого фильма хранится отсортированный массив id с другой стороны. Массивы не изменяются,
+ * лайк подменяет строку пользователя и столбец фильма новыми копиями.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LikeMatrix {
+    private final FilmStorage filmStorage;
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private volatile Cells cells = new Cells();
+    private volatile boolean ready;
+
+    private static class Cells {
+        final ConcurrentMap<Long, long[]> filmsByUser = new ConcurrentHashMap<>();
+        final ConcurrentMap<Long, long[]> usersByFilm = new ConcurrentHashMap<>();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long[] getLikedFilms(long userId) {
+        return cells.filmsByUser.getOrDefault(userId, SortedArrays.empty());
+    }
+
+    public long[] getLikers(long filmId) {
+        return cells.usersByFilm.getOrDefault(filmId, SortedArrays.empty());
+    }
+
+    public int getLikeCount(long filmId) {
+        return getLikers(filmId).length;
+    }
+
+    public void addLike(Long filmId, Long userId) {
+        update(current -> {
+            current.filmsByUser.merge(userId, new long[]{filmId},
+                    (films, ignored) -> SortedArrays.insert(films, filmId));
+            current.usersByFilm.merge(filmId, new long[]{userId},
+                    (users, ignored) -> SortedArrays.insert(users, userId));
+        });
+    }
+
+    public void removeLike(Long filmId, Long userId) {
+        update(current -> {
+            current.filmsByUser.computeIfPresent(userId,
+                    (id, films) -> nullIfEmpty(SortedArrays.remove(films, filmId)));
+            current.usersByFilm.computeIfPresent(filmId,
+                    (id, users) -> nullIfEmpty(SortedArrays.remove(users, userId)));
+        });
+    }
+
+    public void removeUser(Long userId) {
+        update(current -> {
+            long[] films = current.filmsByUser.remove(userId);
+            if (films != null) {
+                for (long filmId : films) {
+                    current.usersByFilm.computeIfPresent(filmId,
+                            (id, users) -> nullIfEmpty(SortedArrays.remove(users, userId)));
+                }
+            }
+        });
+    }
+
+    public void removeFilm(Long filmId) {
+        update(current -> {
+            long[] users = current.usersByFilm.remove(filmId);
+            if (users != null) {
+                for (long userId : users) {
+                    current.filmsByUser.computeIfPresent(userId,
+                            (id, films) -> nullIfEmpty(SortedArrays.remove(films, filmId)));
+                }
+            }
+        });
+    }
+
+    private void update(Consumer<Cells> change) {
+        rebuildLock.readLock().lock();
+        try {
+            change.accept(cells);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private static long[] nullIfEmpty(long[] values) {
+        return values.length == 0 ? null : values;
+    }
+
+    @EventListener({ApplicationReadyEvent.class, DataReloadedEvent.class})
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            Cells rebuilt = new Cells();
+            Map<Long, long[]> likes = filmStorage.getLikedFilmIdsByUser();
+            rebuilt.filmsByUser.putAll(likes);
+
+            Map<Long, Integer> likesPerFilm = new HashMap<>();
+            likes.values().forEach(films -> {
+                for (long filmId : films) {
+                    likesPerFilm.merge(filmId, 1, Integer::sum);
+                }
+            });
+            Map<Long, long[]> usersByFilm = new HashMap<>();
+            Map<Long, Integer> filled = new HashMap<>();
+            likesPerFilm.forEach((filmId, count) -> usersByFilm.put(filmId, new long[count]));
+            new TreeMap<>(likes).forEach((userId, films) -> {
+                for (long filmId : films) {
+                    usersByFilm.get(filmId)[filled.merge(filmId, 1, Integer::sum) - 1] = userId;
+                }
+            });
+            rebuilt.usersByFilm.putAll(usersByFilm);
+
+            cells = rebuilt;
+            ready = true;
+            log.info("Матрица лайков построена: пользователей {}, фильмов {}",
+                    rebuilt.filmsByUser.size(), rebuilt.usersByFilm.size());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.utils.SortedArrays;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Рекомендации фильмов по матрице лайков {@link LikeMatrix}.
+ * Для пользователя выбираются K ближайших по коэффициенту Жаккара соседей среди тех, кто лайкал
+ * хотя бы один общий фильм; непросмотренные фильмы соседей ранжируются по сумме их сходства.
+ */
+@Slf4j
+@Service
+public class RecommendationEngine {
+    private static final int PARALLEL_THRESHOLD = 1024;
+    private static final Comparator<Neighbor> BY_SIMILARITY = Comparator.comparingDouble(Neighbor::similarity)
+            .reversed()
+            .thenComparing(Comparator.comparingInt(Neighbor::common).reversed())
+            .thenComparingLong(Neighbor::userId);
+
+    private final LikeMatrix likeMatrix;
+    private final int neighborCount;
+    private final int filmCount;
+
+    public RecommendationEngine(LikeMatrix likeMatrix,
+                                @Value("${filmorate.recommendations.neighbors:20}") int neighborCount,
+                                @Value("${filmorate.recommendations.films:20}") int filmCount) {
+        this.likeMatrix = likeMatrix;
+        this.neighborCount = neighborCount;
+        this.filmCount = filmCount;
+    }
+
+    private record Neighbor(long userId, int common, double similarity) {
+    }
+
+    public boolean isReady() {
+        return likeMatrix.isReady();
+    }
+
+    public List<Long> recommend(Long userId) {
+        long[] liked = likeMatrix.getLikedFilms(userId);
+        if (liked.length == 0) {
+            return List.of();
+        }
+
+        Set<Long> candidates = new HashSet<>();
+        for (long filmId : liked) {
+            for (long otherId : likeMatrix.getLikers(filmId)) {
+                if (otherId != userId) {
+                    candidates.add(otherId);
+                }
+            }
+        }
+
+        Stream<Long> stream = candidates.size() > PARALLEL_THRESHOLD
+                ? candidates.parallelStream()
+                : candidates.stream();
+        List<Neighbor> neighbors = stream
+                .map(otherId -> similarity(liked, otherId, likeMatrix.getLikedFilms(otherId)))
+                .filter(neighbor -> neighbor.similarity() > 0)
+                .sorted(BY_SIMILARITY)
+                .limit(neighborCount)
+                .toList();
+
+        Map<Long, Double> scores = new HashMap<>();
+        for (Neighbor neighbor : neighbors) {
+            for (long filmId : SortedArrays.difference(likeMatrix.getLikedFilms(neighbor.userId()), liked)) {
+                scores.merge(filmId, neighbor.similarity(), Double::sum);
+            }
+        }
+
+        List<Long> filmIds = scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(filmCount)
+                .map(Map.Entry::getKey)
+                .toList();
+        log.debug("Рекомендации для пользователя {}: соседей {}, фильмов {}", userId, neighbors.size(), filmIds.size());
+        return filmIds;
+    }
+
+    private static Neighbor similarity(long[] liked, long otherId, long[] otherLiked) {
+        int common = SortedArrays.intersectionSize(liked, otherLiked);
+        int union = liked.length + otherLiked.length - common;
+        return new Neighbor(otherId, common, union == 0 ? 0 : (double) common / union);
+    }
+}
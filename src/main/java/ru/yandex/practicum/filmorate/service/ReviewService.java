@@ -14,8 +14,6 @@ import ru.yandex.practicum.filmorate.storage.ReviewStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.List;
 
 @Service
 @Slf4j
@@ -37,19 +35,16 @@ public class ReviewService {
         return reviewStorage.findById(id);
     }
 
-    public Collection<Review> findReviewsOfFilm(Long filmId, Integer limit) {
+    public Collection<Review> findReviewsOfFilm(Long filmId, Integer afterUseful, Long afterId, Integer limit) {
         if (filmId != null) {
             checkFilmExist(filmId);
         }
+        if ((afterUseful == null) != (afterId == null)) {
+            log.error("Курсор отзывов указан не полностью: afterUseful={}, afterId={}", afterUseful, afterId);
+            throw new ValidationException("Параметры afterUseful и afterId указываются вместе");
+        }
 
-        List<Review> all = (filmId == null)
-                ? reviewStorage.getAll()
-                : reviewStorage.getByFilmId(filmId);
-
-        return all.stream()
-                .sorted(Comparator.comparingInt(Review::getUseful).reversed())
-                .limit(limit)
-                .toList();
+        return reviewStorage.findTop(filmId, afterUseful, afterId, limit);
     }
 
     public Review create(Review review) {
@@ -89,60 +84,39 @@ public class ReviewService {
         checkUserExist(userId);
         checkReviewExist(reviewId);
 
-        Review review = reviewStorage.findById(reviewId);
-
-        if (reviewStorage.hasUserRatedTheReview(reviewId, userId) && reviewStorage.getUserRating(reviewId, userId)) {
+        Boolean previous = reviewStorage.rate(reviewId, userId, true);
+        if (Boolean.TRUE.equals(previous)) {
             log.warn("Лайк уже существует для отзыва {} от пользователя {}", reviewId, userId);
 
             throw new IllegalArgumentException("пользователь " + userId + " уже ставил лайк отзыву " + reviewId);
-        } else if (reviewStorage.hasUserRatedTheReview(reviewId, userId) && !reviewStorage.getUserRating(reviewId, userId)) {
-            review.removeDislike();
-            reviewStorage.deleteRating(reviewId, userId);
-
+        }
+        if (previous != null) {
             log.info("Удалён дизлайк для отзыва {} от пользователя {}", reviewId, userId);
         }
-        reviewStorage.addLike(reviewId, userId);
-        review.addLike();
-
         log.info("Добавлен лайк для отзыва {} от пользователя {}", reviewId, userId);
-
-        reviewStorage.updateRating(review);
     }
 
     public void addDislike(Long reviewId, Long userId) {
         checkUserExist(userId);
         checkReviewExist(reviewId);
 
-        Review review = reviewStorage.findById(reviewId);
-
-        if (reviewStorage.hasUserRatedTheReview(reviewId, userId) && !reviewStorage.getUserRating(reviewId, userId)) {
+        Boolean previous = reviewStorage.rate(reviewId, userId, false);
+        if (Boolean.FALSE.equals(previous)) {
             log.warn("Дизлайк уже существует для отзыва {} от пользователя {}", reviewId, userId);
 
             throw new IllegalArgumentException("пользователь " + userId + " уже ставил дизлайк отзыву " + reviewId);
-        } else if (reviewStorage.hasUserRatedTheReview(reviewId, userId) && reviewStorage.getUserRating(reviewId, userId)) {
-            review.removeLike();
-            reviewStorage.deleteRating(reviewId, userId);
-
+        }
+        if (previous != null) {
             log.info("Удалён лайк для отзыва {} от пользователя {}", reviewId, userId);
         }
-
-        reviewStorage.addDislike(reviewId, userId);
-        review.addDislike();
         log.info("Добавлен дизлайк для отзыва {} от пользователя {}", reviewId, userId);
-
-        reviewStorage.updateRating(review);
     }
 
     public void deleteLike(Long reviewId, Long userId) {
         checkUserExist(userId);
         checkReviewExist(reviewId);
 
-        if (reviewStorage.hasUserRatedTheReview(reviewId, userId) && reviewStorage.getUserRating(reviewId, userId)) {
-            Review review = reviewStorage.findById(reviewId);
-            review.removeLike();
-            reviewStorage.deleteRating(reviewId, userId);
-            reviewStorage.updateRating(review);
-
+        if (reviewStorage.deleteRating(reviewId, userId, true)) {
             log.info("Удалён лайк для отзыва {} от пользователя {}", reviewId, userId);
         } else {
             log.warn("Лайк не найден для отзыва {} от пользователя {}", reviewId, userId);
@@ -155,12 +129,7 @@ public class ReviewService {
         checkUserExist(userId);
         checkReviewExist(reviewId);
 
-        if (reviewStorage.hasUserRatedTheReview(reviewId, userId) && !reviewStorage.getUserRating(reviewId, userId)) {
-            Review review = reviewStorage.findById(reviewId);
-            review.removeDislike();
-            reviewStorage.deleteRating(reviewId, userId);
-            reviewStorage.updateRating(review);
-
+        if (reviewStorage.deleteRating(reviewId, userId, false)) {
             log.info("Удалён дизлайк для отзыва {} от пользователя {}", reviewId, userId);
         } else {
             log.warn("Дизлайк не найден для отзыва {} от пользователя {}", reviewId, userId);
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.SnapshotStats;
+import ru.yandex.practicum.filmorate.storage.DataReloadedEvent;
+import ru.yandex.practicum.filmorate.storage.DataSnapshot;
+import ru.yandex.practicum.filmorate.storage.FeedWriter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Снимки данных в каталоге {@code filmorate.snapshot.dir}. Данные восстанавливаются из снимка по запросу
+ * администратора или при запуске, если задан {@code filmorate.snapshot.restore-from}. На время восстановления
+ * запись ленты останавливается, новые запросы отклоняются, а начатые дорабатывают до его начала.
+ * После восстановления публикуется {@link DataReloadedEvent}, и индексы и кэши перестраиваются по новым данным.
+ */
+@Slf4j
+@Service
+public class SnapshotService implements SmartInitializingSingleton {
+    private static final String EXTENSION = ".snap";
+
+    private final DataSnapshot dataSnapshot;
+    private final FeedWriter feedWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path directory;
+    private final String restoreFrom;
+    private final ReadWriteLock requestsLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean restoring = new AtomicBoolean();
+
+    public SnapshotService(DataSnapshot dataSnapshot,
+                           FeedWriter feedWriter,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${filmorate.snapshot.dir:./db/snapshots}") Path directory,
+                           @Value("${filmorate.snapshot.restore-from:}") String restoreFrom) {
+        this.dataSnapshot = dataSnapshot;
+        this.feedWriter = feedWriter;
+        this.eventPublisher = eventPublisher;
+        this.directory = directory;
+        this.restoreFrom = restoreFrom;
+    }
+
+    public SnapshotStats write(String name) {
+        return dataSnapshot.write(resolve(name));
+    }
+
+    public SnapshotStats restore(String name) {
+        Path file = resolve(name);
+        if (!Files.isRegularFile(file)) {
+            log.error("Снимок {} не найден", file);
+            throw new NotFoundException("Снимок " + name + " не найден");
+        }
+        return restore(file);
+    }
+
+    /**
+     * Пускает запрос, если данные сейчас не восстанавливаются. Пропущенный запрос завершается
+     * вызовом {@link #endRequest()}.
+     */
+    public boolean beginRequest() {
+        if (restoring.get()) {
+            return false;
+        }
+        return requestsLock.readLock().tryLock();
+    }
+
+    public void endRequest() {
+        requestsLock.readLock().unlock();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (restoreFrom.isBlank()) {
+            return;
+        }
+        Path file = Path.of(restoreFrom);
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalStateException("Снимок для восстановления при запуске не найден: " + file);
+        }
+        SnapshotStats stats = restore(file);
+        log.info("При запуске восстановлено {} строк из {} за {} мс: {}", stats.getRows(), stats.getFile(),
+                stats.getMillis(), stats.getTables());
+    }
+
+    private SnapshotStats restore(Path file) {
+        if (!restoring.compareAndSet(false, true)) {
+            log.error("Восстановление из снимка уже выполняется");
+            throw new IllegalStateException("Восстановление из снимка уже выполняется");
+        }
+        try {
+            // дожидаемся запросов, начатых до восстановления
+            requestsLock.writeLock().lock();
+            try {
+                feedWriter.pause();
+                try {
+                    SnapshotStats stats = dataSnapshot.restore(file);
+                    eventPublisher.publishEvent(new DataReloadedEvent(this));
+                    return stats;
+                } finally {
+                    feedWriter.resume();
+                }
+            } finally {
+                requestsLock.writeLock().unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Восстановление из снимка прервано", e);
+        } finally {
+            restoring.set(false);
+        }
+    }
+
+    private Path resolve(String name) {
+        if (!name.matches("[A-Za-z0-9_.-]{1,100}") || name.startsWith(".")) {
+            log.error("Некорректное имя снимка {}", name);
+            throw new ValidationException("Имя снимка может содержать только латинские буквы, цифры, '.', '_' и '-'");
+        }
+        return directory.resolve(name + EXTENSION);
+    }
+}
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.*;
@@ -14,10 +15,15 @@ import java.util.*;
 @RequiredArgsConstructor
 public class UserRecommendationsService {
     private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final RecommendationEngine recommendationEngine;
 
     public Collection<Film> getRecommendations(Long userId) {
         checkUserExists(userId);
 
+        if (recommendationEngine.isReady()) {
+            return filmStorage.findByIds(recommendationEngine.recommend(userId));
+        }
         return userStorage.findRecommendedFilmsForUser(userId);
     }
 
@@ -12,6 +12,7 @@ import ru.yandex.practicum.filmorate.model.UserEvent;
 import ru.yandex.practicum.filmorate.storage.FeedStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -21,6 +22,9 @@ import java.util.List;
 public class UserService {
     private final UserStorage userStorage;
     private final FeedStorage feedStorage;
+    private final FilmLeaderboardService leaderboard;
+    private final LikeMatrix likeMatrix;
+    private final FriendshipGraph friendshipGraph;
 
     public User create(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
@@ -54,10 +58,11 @@ public class UserService {
     public void addFriend(Long userId, Long friendId) {
         checkYourself(userId, friendId);
 
-        findByIdFromStorage(userId);
-        findByIdFromStorage(friendId);
+        checkUserExist(userId);
+        checkUserExist(friendId);
 
         userStorage.addFriend(userId, friendId);
+        friendshipGraph.addFriend(userId, friendId);
         log.info("{} и {} теперь друзья!", userId, friendId);
 
         addEventToFeed(userId, friendId, Operation.ADD);
@@ -66,10 +71,11 @@ public class UserService {
     public void deleteFriend(Long userId, Long friendId) {
         checkYourself(userId, friendId);
 
-        findByIdFromStorage(userId);
-        findByIdFromStorage(friendId);
+        checkUserExist(userId);
+        checkUserExist(friendId);
 
         userStorage.deleteFriend(userId, friendId);
+        friendshipGraph.deleteFriend(userId, friendId);
         log.info("{} и {} больше не друзья!", userId, friendId);
 
         addEventToFeed(userId, friendId, Operation.REMOVE);
@@ -81,19 +87,25 @@ public class UserService {
     }
 
     public List<User> commonFriends(Long userId, Long friendId) {
-        findByIdFromStorage(userId);
-        findByIdFromStorage(friendId);
+        checkUserExist(userId);
+        checkUserExist(friendId);
 
         log.debug("Выведены общие друзья пользователей {} и {}", userId, friendId);
 
+        if (friendshipGraph.isReady()) {
+            return userStorage.findByIds(toList(friendshipGraph.getCommonFriends(userId, friendId)));
+        }
         return userStorage.getCommonFriends(userId, friendId).stream().toList();
     }
 
     public List<User> getFriends(Long userId) {
-        findByIdFromStorage(userId);
+        checkUserExist(userId);
 
         log.debug("Выведен список друзей пользователя {}", userId);
 
+        if (friendshipGraph.isReady()) {
+            return userStorage.findByIds(toList(friendshipGraph.getFriends(userId)));
+        }
         return userStorage.getFriends(userId).stream().toList();
     }
 
@@ -105,11 +117,19 @@ public class UserService {
     }
 
     private User findByIdFromStorage(Long userId) {
+        checkUserExist(userId);
+        return userStorage.getUserById(userId);
+    }
+
+    private void checkUserExist(Long userId) {
         if (!userStorage.isUserExists(userId)) {
             log.error("Пользователь с id={} не найден.", userId);
             throw new NotFoundException(String.format("Пользователь с id=%s не найден.", userId));
         }
-        return userStorage.getUserById(userId);
+    }
+
+    private static List<Long> toList(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
     }
 
     private void validateEmail(User user) {
@@ -126,14 +146,41 @@ public class UserService {
         return feedStorage.getFeed(userId).stream().toList();
     }
 
+    public List<UserEvent> getFeed(Long userId, int limit) {
+        if (limit <= 0) {
+            log.error("Некорректное число событий ленты {}", limit);
+            throw new ValidationException("Число событий ленты должно быть положительным");
+        }
+        findByIdFromStorage(userId);
+
+        log.info("Получены последние {} событий ленты пользователя с id: {}", limit, userId);
+        return feedStorage.getFeed(userId, limit).stream().toList();
+    }
+
     public void delete(Long id) {
         findByIdFromStorage(id);
-        userStorage.delete(id);
+        long[] likedFilms = likeMatrix.isReady() ? likeMatrix.getLikedFilms(id) : null;
+        if (likedFilms != null) {
+            // вместе с пользователем удалены его лайки: фильмы сдвигаются в рейтинге по одному
+            leaderboard.withLikes(() -> {
+                userStorage.delete(id);
+                Arrays.stream(likedFilms).forEach(filmId -> leaderboard.changeLikes(filmId, -1));
+                return likedFilms;
+            });
+        } else {
+            userStorage.delete(id);
+            leaderboard.rebuild();
+        }
+        likeMatrix.removeUser(id);
+        friendshipGraph.removeUser(id);
         log.info("Был удалён пользователь с id: {}", id);
     }
 
     public void deleteAll() {
         userStorage.deleteAll();
+        leaderboard.rebuild();
+        likeMatrix.rebuild();
+        friendshipGraph.rebuild();
         log.info("Таблица users была очищена");
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Выборка строк по списку id. Id передаются одним параметром-массивом ({@code = ANY(:ids)}),
+ * поэтому текст запроса не зависит от длины списка и план запроса переиспользуется;
+ * большие списки разбиваются на части по {@link #CHUNK_SIZE}.
+ */
+@Component
+@RequiredArgsConstructor
+public class BulkFetcher {
+    public static final int CHUNK_SIZE = 1000;
+
+    private final NamedParameterJdbcOperations jdbc;
+
+    public <T> List<T> fetch(String sql, String idsParam, Collection<Long> ids, RowMapper<T> rowMapper) {
+        List<T> rows = new ArrayList<>(ids.size());
+        forEachChunk(ids, chunk -> rows.addAll(jdbc.query(sql, params(idsParam, chunk), rowMapper)));
+        return rows;
+    }
+
+    public void fetch(String sql, String idsParam, Collection<Long> ids, RowCallbackHandler handler) {
+        forEachChunk(ids, chunk -> jdbc.query(sql, params(idsParam, chunk), handler));
+    }
+
+    private static MapSqlParameterSource params(String idsParam, Long[] chunk) {
+        return new MapSqlParameterSource(idsParam, new SqlParameterValue(Types.ARRAY, chunk));
+    }
+
+    private static void forEachChunk(Collection<Long> ids, Consumer<Long[]> action) {
+        Long[] all = ids.toArray(new Long[0]);
+        for (int from = 0; from < all.length; from += CHUNK_SIZE) {
+            action.accept(Arrays.copyOfRange(all, from, Math.min(from + CHUNK_SIZE, all.length)));
+        }
+    }
+}
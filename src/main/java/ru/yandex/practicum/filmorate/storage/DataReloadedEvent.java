@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Данные в БД заменены целиком в обход хранилищ, например массовой загрузкой. Компоненты, которые
+ * строят индексы и кэши по БД при {@code ApplicationReadyEvent}, по этому событию строят их заново.
+ */
+public class DataReloadedEvent extends ApplicationEvent {
+    public DataReloadedEvent(Object source) {
+        super(source);
+    }
+}
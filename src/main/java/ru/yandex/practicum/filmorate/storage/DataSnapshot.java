@@ -0,0 +1,781 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.SnapshotStats;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+
+/**
+ * Снимок всех таблиц в компактном колоночном бинарном файле и восстановление из него.
+ * Таблица пишется группами по {@link #ROW_GROUP_SIZE} строк, внутри группы значения каждого столбца
+ * лежат подряд: целые и даты — фиксированной ширины (BIGINT — 4 байта, если все значения группы
+ * помещаются в int), строки — массивом смещений и UTF-8 байтами, NULL — битовой картой.
+ * У каждой группы есть контрольная сумма CRC32C. Строки пишутся в порядке первичного ключа, файл пишется
+ * и читается через отображение в память. Восстановление сначала проверяет весь файл, затем снимает внешние
+ * ключи и обычные индексы, очищает таблицы и вставляет каждую группу одним запросом, после чего добавляет
+ * внешние ключи с проверкой строк, строит индексы и сдвигает счётчики identity.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DataSnapshot {
+    private static final byte[] MAGIC = "FLMSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final byte VERSION = 2;
+    private static final int ROW_GROUP_SIZE = 65_536;
+    private static final long WINDOW_SIZE = 64L << 20;
+    /**
+     * Родительские таблицы идут раньше дочерних.
+     */
+    private static final List<String> TABLES = List.of("mpa_rating", "genres", "directors", "users", "films",
+            "film_genres", "film_directors", "friendship", "likes", "reviews", "review_ratings", "user_event");
+
+    private static final Pattern FOREIGN_KEY =
+            Pattern.compile("ALTER TABLE (\\S+) ADD CONSTRAINT (\\S+) FOREIGN KEY\\(.*");
+    private static final Pattern INDEX = Pattern.compile("CREATE INDEX (\\S+) ON .*");
+
+    private static final byte INT32 = 1;
+    private static final byte INT64 = 2;
+    private static final byte BOOL = 3;
+    private static final byte DATE = 4;
+    private static final byte TIMESTAMP = 5;
+    private static final byte STRING = 6;
+
+    private final DataSource dataSource;
+    private final FeedWriter feedWriter;
+
+    public SnapshotStats write(Path file) {
+        long started = System.currentTimeMillis();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<String, Long> tables = new LinkedHashMap<>();
+        long bytes;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (Connection connection = dataSource.getConnection();
+                 FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // все таблицы читаются из одного согласованного состояния БД
+                connection.setAutoCommit(false);
+                connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                Output out = new Output(channel);
+                ByteBuffer header = out.reserve(MAGIC.length + 1 + 4);
+                header.put(MAGIC).put(VERSION).putInt(TABLES.size());
+                for (String table : TABLES) {
+                    long tableStarted = System.currentTimeMillis();
+                    tables.put(table, writeTable(connection, table, out));
+                    log.debug("Таблица {} записана в снимок: {} строк за {} мс", table, tables.get(table),
+                            System.currentTimeMillis() - tableStarted);
+                }
+                connection.commit();
+                out.finish();
+                bytes = out.position;
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось записать снимок " + file + ": " + e.getMessage(), e);
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Снимок данных", null, e);
+        }
+        SnapshotStats stats = stats(file, bytes, tables, started);
+        log.info("Снимок данных записан в {}: {} строк, {} байт за {} мс", file, stats.getRows(), bytes,
+                stats.getMillis());
+        return stats;
+    }
+
+    /**
+     * Заменяет данные содержимым снимка. Рассчитано на то, что в БД никто не пишет: запросы на время
+     * восстановления останавливает {@code SnapshotService}.
+     * Файл целиком проверяется до первого изменения БД: повреждённый или оборванный снимок
+     * оставляет данные нетронутыми.
+     */
+    public SnapshotStats restore(Path file) {
+        long started = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            Map<String, Long> tables = verify(connection, new Input(channel), file);
+            log.debug("Снимок {} проверен за {} мс", file, System.currentTimeMillis() - started);
+
+            // события из очереди записи ленты относятся к заменяемым данным
+            feedWriter.discardAll();
+            // внешние ключи и обычные индексы дешевле построить по загруженным данным, чем вести при вставке;
+            // если восстановление прервётся, всю схему заново создаст schema.sql при следующем запуске
+            List<String> deferred = deferredDefinitions(statement);
+            try {
+                for (String definition : deferred) {
+                    statement.execute(dropStatement(definition));
+                }
+                for (String table : TABLES) {
+                    statement.execute("TRUNCATE TABLE " + table);
+                }
+                connection.setAutoCommit(false);
+                Input in = new Input(channel);
+                readHeader(in, file);
+                for (String table : TABLES) {
+                    long tableStarted = System.currentTimeMillis();
+                    in.readName();
+                    readTable(connection, table, in);
+                    log.debug("Таблица {} восстановлена: {} строк за {} мс", table, tables.get(table),
+                            System.currentTimeMillis() - tableStarted);
+                }
+            } finally {
+                connection.setAutoCommit(true);
+                long indexesStarted = System.currentTimeMillis();
+                for (String definition : deferred) {
+                    // внешние ключи добавляются с проверкой существующих строк
+                    statement.execute(definition
+                            .replaceFirst("^CREATE INDEX ", "CREATE INDEX IF NOT EXISTS ")
+                            .replaceFirst(" ADD CONSTRAINT ", " ADD CONSTRAINT IF NOT EXISTS ")
+                            .replaceFirst(" NOCHECK(;?)$", "$1"));
+                }
+                log.debug("Внешние ключи и индексы ({}) построены за {} мс", deferred.size(),
+                        System.currentTimeMillis() - indexesStarted);
+            }
+            restartIdentities(connection, statement);
+            statement.execute("ANALYZE");
+            SnapshotStats stats = stats(file, channel.size(), tables, started);
+            log.info("Данные восстановлены из снимка {}: {} строк за {} мс", file, stats.getRows(), stats.getMillis());
+            return stats;
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать снимок " + file + ": " + e.getMessage(), e);
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Восстановление из снимка", null, e);
+        }
+    }
+
+    private static SnapshotStats stats(Path file, long bytes, Map<String, Long> tables, long started) {
+        return SnapshotStats.builder()
+                .file(file.toAbsolutePath().toString())
+                .bytes(bytes)
+                .rows(tables.values().stream().mapToLong(Long::longValue).sum())
+                .millis(System.currentTimeMillis() - started)
+                .tables(tables)
+                .build();
+    }
+
+    private long writeTable(Connection connection, String table, Output out) throws SQLException {
+        // строки в порядке первичного ключа: при восстановлении ключи дописываются в конец индекса
+        String orderBy = primaryKey(connection, table);
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT * FROM " + table
+                     + (orderBy.isEmpty() ? "" : " ORDER BY " + orderBy))) {
+            ResultSetMetaData meta = rs.getMetaData();
+            Column[] columns = new Column[meta.getColumnCount()];
+            byte[] tableName = table.getBytes(StandardCharsets.UTF_8);
+            int headerSize = 2 + tableName.length + 4;
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new Column(meta.getColumnName(i + 1), typeOf(table, meta, i + 1));
+                headerSize += 2 + columns[i].name.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+            ByteBuffer header = out.reserve(headerSize);
+            putName(header, table);
+            header.putInt(columns.length);
+            for (Column column : columns) {
+                putName(header, column.name);
+                header.put(column.type);
+            }
+
+            long total = 0;
+            int rows = 0;
+            while (rs.next()) {
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i].read(rs, i + 1, rows);
+                }
+                if (++rows == ROW_GROUP_SIZE) {
+                    writeGroup(out, columns, rows);
+                    total += rows;
+                    rows = 0;
+                }
+            }
+            if (rows > 0) {
+                writeGroup(out, columns, rows);
+                total += rows;
+            }
+            out.reserve(4).putInt(0);
+            return total;
+        }
+    }
+
+    private static String primaryKey(Connection connection, String table) throws SQLException {
+        Map<Short, String> columns = new TreeMap<>();
+        try (ResultSet rs = connection.getMetaData().getPrimaryKeys(null, "PUBLIC", table.toUpperCase(Locale.ROOT))) {
+            while (rs.next()) {
+                columns.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        return String.join(", ", columns.values());
+    }
+
+    private static void writeGroup(Output out, Column[] columns, int rows) {
+        int size = 0;
+        for (Column column : columns) {
+            size += column.encode(rows);
+        }
+        ByteBuffer group = out.reserve(12 + size);
+        group.putInt(rows).putInt(size).putInt(0);
+        for (Column column : columns) {
+            column.write(group, rows);
+        }
+        group.putInt(8, checksum(group.slice(12, size)));
+    }
+
+    private static int checksum(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static int readHeader(Input in, Path file) {
+        ByteBuffer header = in.need(MAGIC.length + 1 + 4);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || header.get() != VERSION) {
+            throw new IllegalStateException("Файл " + file + " не является снимком данных версии " + VERSION);
+        }
+        return header.getInt();
+    }
+
+    /**
+     * Полностью читает снимок, ничего не меняя в БД: сверяет таблицы и столбцы со схемой,
+     * контрольную сумму и разметку каждой группы. Возвращает число строк по таблицам.
+     */
+    private static Map<String, Long> verify(Connection connection, Input in, Path file) throws SQLException {
+        if (readHeader(in, file) != TABLES.size()) {
+            throw corrupted(file, "ожидалось таблиц: " + TABLES.size());
+        }
+        Map<String, Long> tables = new LinkedHashMap<>();
+        for (String table : TABLES) {
+            String name = in.readName();
+            if (!name.equals(table)) {
+                throw corrupted(file, "на месте таблицы " + table + " записана " + name);
+            }
+            String where = "таблица " + table;
+            try {
+                Column[] columns = readColumns(in);
+                boolean[] nullable = checkColumns(connection, table, columns, file);
+                long total = 0;
+                for (int rows = in.need(4).getInt(), index = 0; rows != 0; rows = in.need(4).getInt(), index++) {
+                    where = "таблица " + table + ", группа " + index;
+                    Group group = readGroup(in, rows);
+                    if (group.checksum() != checksum(group.body().duplicate())) {
+                        throw corrupted(file, where + ": не совпадает контрольная сумма");
+                    }
+                    for (int i = 0; i < columns.length; i++) {
+                        columns[i].decode(group.body(), rows);
+                        if (columns[i].hasNulls && !nullable[i]) {
+                            throw corrupted(file, where + ": NULL в столбце " + columns[i].name);
+                        }
+                    }
+                    if (group.body().hasRemaining()) {
+                        throw corrupted(file, where + ": лишние байты в группе");
+                    }
+                    total += rows;
+                }
+                tables.put(table, total);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException
+                     | NegativeArraySizeException e) {
+                throw corrupted(file, where + ": " + e);
+            }
+        }
+        if (in.position() != in.size) {
+            throw corrupted(file, "лишние данные после последней таблицы");
+        }
+        return tables;
+    }
+
+    private static IllegalStateException corrupted(Path file, String reason) {
+        return new IllegalStateException("Снимок " + file + " повреждён: " + reason);
+    }
+
+    private static Column[] readColumns(Input in) {
+        Column[] columns = new Column[in.need(4).getInt()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(in.readName(), in.need(1).get());
+        }
+        return columns;
+    }
+
+    /**
+     * Сверяет столбцы снимка со столбцами таблицы в БД и возвращает, какие из них допускают NULL.
+     */
+    private static boolean[] checkColumns(Connection connection, String table, Column[] columns, Path file)
+            throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            if (meta.getColumnCount() != columns.length) {
+                throw corrupted(file, "в таблице " + table + " другое число столбцов");
+            }
+            boolean[] nullable = new boolean[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                if (!meta.getColumnName(i + 1).equalsIgnoreCase(columns[i].name)
+                        || typeOf(table, meta, i + 1) != columns[i].type) {
+                    throw corrupted(file, "столбец " + table + "." + columns[i].name + " не совпадает со схемой");
+                }
+                nullable[i] = meta.isNullable(i + 1) != ResultSetMetaData.columnNoNulls;
+            }
+            return nullable;
+        }
+    }
+
+    /**
+     * Группа строк: разметка столбцов и контрольная сумма CRC32C, записанная при создании снимка.
+     */
+    private record Group(ByteBuffer body, int checksum) {
+    }
+
+    private static Group readGroup(Input in, int rows) {
+        ByteBuffer header = in.need(8);
+        int size = header.getInt();
+        int checksum = header.getInt();
+        if (rows < 0 || rows > ROW_GROUP_SIZE || size < 0) {
+            throw new IllegalArgumentException("некорректный заголовок группы: строк " + rows + ", байт " + size);
+        }
+        return new Group(in.take(size), checksum);
+    }
+
+    /**
+     * Загружает проверенную таблицу: группа вставляется одним запросом, столбцы передаются
+     * массивами и разворачиваются в строки.
+     */
+    private static void readTable(Connection connection, String table, Input in) throws SQLException {
+        Column[] columns = readColumns(in);
+        String sql = "INSERT INTO " + table + " ("
+                + Arrays.stream(columns).map(column -> column.name).collect(Collectors.joining(", "))
+                + ") SELECT * FROM UNNEST("
+                + Arrays.stream(columns).map(column -> "?").collect(Collectors.joining(", ")) + ")";
+
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            for (int rows = in.need(4).getInt(); rows != 0; rows = in.need(4).getInt()) {
+                ByteBuffer body = readGroup(in, rows).body();
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i].decode(body, rows);
+                    insert.setObject(i + 1, columns[i].array(rows));
+                }
+                insert.executeUpdate();
+                connection.commit();
+            }
+        }
+    }
+
+    private static void restartIdentities(Connection connection, Statement statement) throws SQLException {
+        List<String[]> identities = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery("SELECT table_name, column_name FROM information_schema.columns "
+                + "WHERE table_schema = 'PUBLIC' AND is_identity = 'YES'")) {
+            while (rs.next()) {
+                identities.add(new String[]{rs.getString(1), rs.getString(2)});
+            }
+        }
+        for (String[] identity : identities) {
+            if (!TABLES.contains(identity[0].toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            long max;
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT COALESCE(MAX(" + identity[1] + "), 0) FROM " + identity[0])) {
+                rs.next();
+                max = rs.getLong(1);
+            }
+            statement.execute("ALTER TABLE " + identity[0] + " ALTER COLUMN " + identity[1]
+                    + " RESTART WITH " + (max + 1));
+        }
+        connection.commit();
+    }
+
+    /**
+     * Определения внешних ключей и обычных индексов таблиц снимка. Внешние ключи идут первыми,
+     * чтобы при повторном создании они получили собственные индексы, как в исходной схеме.
+     */
+    private static List<String> deferredDefinitions(Statement statement) throws SQLException {
+        List<String> foreignKeys = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery("SCRIPT NODATA NOPASSWORDS NOSETTINGS TABLE "
+                + String.join(", ", TABLES))) {
+            while (rs.next()) {
+                String line = rs.getString(1);
+                if (FOREIGN_KEY.matcher(line).matches()) {
+                    foreignKeys.add(line);
+                } else if (INDEX.matcher(line).matches()) {
+                    indexes.add(line);
+                }
+            }
+        }
+        foreignKeys.addAll(indexes);
+        return foreignKeys;
+    }
+
+    private static String dropStatement(String definition) {
+        Matcher foreignKey = FOREIGN_KEY.matcher(definition);
+        if (foreignKey.matches()) {
+            return "ALTER TABLE " + foreignKey.group(1) + " DROP CONSTRAINT IF EXISTS " + foreignKey.group(2);
+        }
+        Matcher index = INDEX.matcher(definition);
+        if (!index.matches()) {
+            throw new IllegalArgumentException(definition);
+        }
+        return "DROP INDEX IF EXISTS " + index.group(1);
+    }
+
+    private static byte typeOf(String table, ResultSetMetaData meta, int index) throws SQLException {
+        return switch (meta.getColumnType(index)) {
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> INT32;
+            case Types.BIGINT -> INT64;
+            case Types.BOOLEAN, Types.BIT -> BOOL;
+            case Types.DATE -> DATE;
+            case Types.TIMESTAMP -> TIMESTAMP;
+            case Types.VARCHAR, Types.CHAR, Types.LONGVARCHAR, Types.NVARCHAR -> STRING;
+            default -> throw new IllegalStateException("Тип столбца " + table + "." + meta.getColumnName(index)
+                    + " не поддерживается снимком: " + meta.getColumnTypeName(index));
+        };
+    }
+
+    private static void putName(ByteBuffer buffer, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    /**
+     * Значения одного столбца в текущей группе строк.
+     */
+    private static final class Column {
+        private final String name;
+        private final byte type;
+        private final long[] values;
+        private final String[] strings;
+        private final boolean[] nulls = new boolean[ROW_GROUP_SIZE];
+        private final byte[][] encoded;
+        private boolean hasNulls;
+        private int width;
+        private int stringBytes;
+
+        Column(String name, byte type) {
+            this.name = name;
+            this.type = type;
+            this.values = type == STRING ? null : new long[ROW_GROUP_SIZE];
+            this.strings = type == STRING ? new String[ROW_GROUP_SIZE] : null;
+            this.encoded = type == STRING ? new byte[ROW_GROUP_SIZE][] : null;
+        }
+
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            switch (type) {
+                case INT32, INT64 -> values[row] = rs.getLong(index);
+                case BOOL -> values[row] = rs.getBoolean(index) ? 1 : 0;
+                case DATE -> {
+                    LocalDate date = rs.getObject(index, LocalDate.class);
+                    values[row] = date == null ? 0 : date.toEpochDay();
+                }
+                case TIMESTAMP -> {
+                    Timestamp timestamp = rs.getTimestamp(index);
+                    values[row] = timestamp == null ? 0
+                            : Math.floorDiv(timestamp.getTime(), 1000) * 1_000_000_000 + timestamp.getNanos();
+                }
+                default -> strings[row] = rs.getString(index);
+            }
+            nulls[row] = rs.wasNull();
+            hasNulls |= nulls[row];
+        }
+
+        /**
+         * Готовит группу к записи и возвращает её размер в байтах.
+         */
+        int encode(int rows) {
+            int size = 1 + (hasNulls ? (rows + 7) / 8 : 0);
+            return size + switch (type) {
+                case INT32, DATE -> 4 * rows;
+                case INT64 -> {
+                    width = 4;
+                    for (int row = 0; row < rows; row++) {
+                        if (values[row] != (int) values[row]) {
+                            width = 8;
+                            break;
+                        }
+                    }
+                    yield 1 + width * rows;
+                }
+                case BOOL -> rows;
+                case TIMESTAMP -> 8 * rows;
+                default -> {
+                    stringBytes = 0;
+                    for (int row = 0; row < rows; row++) {
+                        encoded[row] = nulls[row] ? new byte[0] : strings[row].getBytes(StandardCharsets.UTF_8);
+                        stringBytes += encoded[row].length;
+                    }
+                    yield 4 * rows + stringBytes;
+                }
+            };
+        }
+
+        void write(ByteBuffer buffer, int rows) {
+            buffer.put((byte) (hasNulls ? 1 : 0));
+            if (hasNulls) {
+                byte[] bitmap = new byte[(rows + 7) / 8];
+                for (int row = 0; row < rows; row++) {
+                    if (nulls[row]) {
+                        bitmap[row >>> 3] |= (byte) (1 << (row & 7));
+                    }
+                }
+                buffer.put(bitmap);
+            }
+            switch (type) {
+                case INT32, DATE -> {
+                    for (int row = 0; row < rows; row++) {
+                        buffer.putInt((int) values[row]);
+                    }
+                }
+                case INT64 -> {
+                    buffer.put((byte) width);
+                    for (int row = 0; row < rows; row++) {
+                        if (width == 4) {
+                            buffer.putInt((int) values[row]);
+                        } else {
+                            buffer.putLong(values[row]);
+                        }
+                    }
+                }
+                case BOOL -> {
+                    for (int row = 0; row < rows; row++) {
+                        buffer.put((byte) values[row]);
+                    }
+                }
+                case TIMESTAMP -> {
+                    for (int row = 0; row < rows; row++) {
+                        buffer.putLong(values[row]);
+                    }
+                }
+                default -> {
+                    int end = 0;
+                    for (int row = 0; row < rows; row++) {
+                        end += encoded[row].length;
+                        buffer.putInt(end);
+                    }
+                    for (int row = 0; row < rows; row++) {
+                        buffer.put(encoded[row]);
+                        encoded[row] = null;
+                    }
+                }
+            }
+            hasNulls = false;
+        }
+
+        /**
+         * Читает группу; на нарушенной разметке бросает {@link IllegalArgumentException}
+         * или исключение переполнения буфера.
+         */
+        void decode(ByteBuffer buffer, int rows) {
+            byte flag = buffer.get();
+            if (flag != 0 && flag != 1) {
+                throw new IllegalArgumentException("некорректный признак NULL столбца " + name);
+            }
+            hasNulls = flag == 1;
+            if (hasNulls) {
+                byte[] bitmap = new byte[(rows + 7) / 8];
+                buffer.get(bitmap);
+                for (int row = 0; row < rows; row++) {
+                    nulls[row] = (bitmap[row >>> 3] & (1 << (row & 7))) != 0;
+                }
+            }
+            switch (type) {
+                case INT32, DATE -> {
+                    for (int row = 0; row < rows; row++) {
+                        values[row] = buffer.getInt();
+                    }
+                }
+                case INT64 -> {
+                    byte width = buffer.get();
+                    if (width != 4 && width != 8) {
+                        throw new IllegalArgumentException("некорректная ширина столбца " + name + ": " + width);
+                    }
+                    boolean narrow = width == 4;
+                    for (int row = 0; row < rows; row++) {
+                        values[row] = narrow ? buffer.getInt() : buffer.getLong();
+                    }
+                }
+                case BOOL -> {
+                    for (int row = 0; row < rows; row++) {
+                        values[row] = buffer.get();
+                        if (values[row] != 0 && values[row] != 1) {
+                            throw new IllegalArgumentException("некорректное логическое значение в " + name);
+                        }
+                    }
+                }
+                case TIMESTAMP -> {
+                    for (int row = 0; row < rows; row++) {
+                        values[row] = buffer.getLong();
+                    }
+                }
+                default -> {
+                    int[] ends = new int[rows];
+                    for (int row = 0, start = 0; row < rows; start = ends[row++]) {
+                        ends[row] = buffer.getInt();
+                        if (ends[row] < start) {
+                            throw new IllegalArgumentException("некорректные смещения строк в " + name);
+                        }
+                    }
+                    if (rows > 0 && ends[rows - 1] > buffer.remaining()) {
+                        throw new BufferUnderflowException();
+                    }
+                    byte[] bytes = new byte[rows == 0 ? 0 : ends[rows - 1]];
+                    buffer.get(bytes);
+                    for (int row = 0, start = 0; row < rows; start = ends[row++]) {
+                        strings[row] = new String(bytes, start, ends[row] - start, StandardCharsets.UTF_8);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Значения группы массивом Java-типа столбца, NULL — элементом {@code null}.
+         */
+        Object[] array(int rows) {
+            Object[] array = switch (type) {
+                case INT32 -> new Integer[rows];
+                case INT64 -> new Long[rows];
+                case BOOL -> new Boolean[rows];
+                case DATE -> new LocalDate[rows];
+                case TIMESTAMP -> new Timestamp[rows];
+                default -> new String[rows];
+            };
+            for (int row = 0; row < rows; row++) {
+                if (hasNulls && nulls[row]) {
+                    continue;
+                }
+                array[row] = switch (type) {
+                    case INT32 -> (int) values[row];
+                    case INT64 -> values[row];
+                    case BOOL -> values[row] != 0;
+                    case DATE -> LocalDate.ofEpochDay(values[row]);
+                    case TIMESTAMP -> {
+                        Timestamp timestamp = new Timestamp(Math.floorDiv(values[row], 1_000_000_000) * 1000);
+                        timestamp.setNanos((int) Math.floorMod(values[row], 1_000_000_000));
+                        yield timestamp;
+                    }
+                    default -> strings[row];
+                };
+            }
+            return array;
+        }
+    }
+
+    /**
+     * Последовательная запись в файл через окно, отображённое в память; участки нарезаются из окна,
+     * а новое окно отображается, когда очередной участок в текущее не помещается.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private long position;
+        private MappedByteBuffer window;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer reserve(int bytes) {
+            if (window == null || window.remaining() < bytes) {
+                try {
+                    window = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(WINDOW_SIZE, bytes));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Не удалось отобразить участок снимка: " + e.getMessage(), e);
+                }
+            }
+            ByteBuffer slice = window.slice(window.position(), bytes).order(ByteOrder.LITTLE_ENDIAN);
+            window.position(window.position() + bytes);
+            position += bytes;
+            return slice;
+        }
+
+        /**
+         * Отрезает от файла незаполненный хвост последнего окна.
+         */
+        void finish() throws IOException {
+            window = null;
+            channel.truncate(position);
+        }
+    }
+
+    /**
+     * Последовательное чтение файла через окно, отображённое в память; окно сдвигается,
+     * когда очередной участок в него не помещается.
+     */
+    private static final class Input {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        ByteBuffer need(int bytes) {
+            if (window == null || window.remaining() < bytes) {
+                long position = position();
+                long length = Math.min(Math.max(WINDOW_SIZE, bytes), size - position);
+                if (length < bytes) {
+                    throw new IllegalStateException("Снимок обрывается на позиции " + position);
+                }
+                try {
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Не удалось отобразить участок снимка: " + e.getMessage(), e);
+                }
+                window.order(ByteOrder.LITTLE_ENDIAN);
+                windowStart = position;
+            }
+            return window;
+        }
+
+        /**
+         * Следующие {@code bytes} байт отдельным буфером.
+         */
+        ByteBuffer take(int bytes) {
+            ByteBuffer window = need(bytes);
+            ByteBuffer slice = window.slice(window.position(), bytes).order(ByteOrder.LITTLE_ENDIAN);
+            window.position(window.position() + bytes);
+            return slice;
+        }
+
+        long position() {
+            return window == null ? 0 : windowStart + window.position();
+        }
+
+        String readName() {
+            byte[] bytes = new byte[need(2).getShort() & 0xFFFF];
+            need(bytes.length).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
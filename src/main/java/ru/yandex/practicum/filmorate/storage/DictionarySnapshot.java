@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Неизменяемый снимок небольшой справочной таблицы в памяти.
+ * Модели изменяемые, поэтому наружу отдаются копии, а экземпляры снимка никому не достаются;
+ * после записи в таблицу снимок перечитывается и подменяется целиком.
+ */
+@Slf4j
+public class DictionarySnapshot<K, V> {
+    private final String name;
+    private final Supplier<List<V>> loader;
+    private final Function<V, K> idOf;
+    private final UnaryOperator<V> copy;
+    private volatile Map<K, V> entries;
+
+    public DictionarySnapshot(String name, Supplier<List<V>> loader, Function<V, K> idOf, UnaryOperator<V> copy) {
+        this.name = name;
+        this.loader = loader;
+        this.idOf = idOf;
+        this.copy = copy;
+    }
+
+    public V get(K id) {
+        V value = id == null ? null : current().get(id);
+        return value == null ? null : copy.apply(value);
+    }
+
+    public boolean contains(K id) {
+        return id != null && current().containsKey(id);
+    }
+
+    public boolean containsAll(Collection<K> ids) {
+        Map<K, V> snapshot = current();
+        return ids.stream().allMatch(snapshot::containsKey);
+    }
+
+    public List<V> values() {
+        return current().values().stream().map(copy).toList();
+    }
+
+    public synchronized void refresh() {
+        Map<K, V> loaded = new LinkedHashMap<>();
+        loader.get().forEach(value -> loaded.put(idOf.apply(value), value));
+        entries = Collections.unmodifiableMap(loaded);
+        log.debug("Справочник {} загружен, записей: {}", name, loaded.size());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // снимок видел незакоммиченные строки — после отката перечитываем его ещё раз
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        refresh();
+                    }
+                }
+            });
+        }
+    }
+
+    private Map<K, V> current() {
+        Map<K, V> snapshot = entries;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (entries == null) {
+                    refresh();
+                }
+                snapshot = entries;
+            }
+        }
+        return snapshot;
+    }
+}
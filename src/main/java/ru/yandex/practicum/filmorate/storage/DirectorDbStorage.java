@@ -1,16 +1,13 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Director;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collection;
 
@@ -19,14 +16,9 @@ import java.util.Collection;
 public class DirectorDbStorage implements DirectorStorage {
 
     private final JdbcTemplate jdbcTemplate;
-    private final NamedParameterJdbcOperations jdbc;
-
-    private Director mapRowToDirector(ResultSet rs, int rowNum) throws SQLException {
-        return Director.builder()
-                .id(rs.getInt("director_id"))
-                .name(rs.getString("name"))
-                .build();
-    }
+    private final FilmCache filmCache;
+    private final ReferenceDictionaries dictionaries;
+    private final FilmSearchIndex searchIndex;
 
     @Override
     public Director create(Director director) {
@@ -40,33 +32,38 @@ public class DirectorDbStorage implements DirectorStorage {
 
         int id = keyHolder.getKey().intValue();
         director.setId(id);
+        dictionaries.directors().refresh();
+        searchIndex.putDirector(director);
 
         return director;
     }
 
     @Override
     public Collection<Director> findAll() {
-        final String FIND_ALL_QUERY = "SELECT director_id, name FROM directors";
-        return jdbcTemplate.query(FIND_ALL_QUERY, this::mapRowToDirector);
+        return dictionaries.directors().values();
     }
 
     @Override
     public Director findById(int id) {
-        final String FIND_BY_ID_QUERY = "SELECT director_id, name FROM directors WHERE director_id=?";
-        Director director = jdbcTemplate.queryForObject(FIND_BY_ID_QUERY, this::mapRowToDirector, id);
+        Director director = dictionaries.directors().get(id);
+        if (director == null) {
+            throw new EmptyResultDataAccessException(1);
+        }
         return director;
     }
 
     @Override
     public boolean isDirectorExist(Integer id) {
-        String sql = "SELECT COUNT(*) FROM directors WHERE director_id = :director_id;";
-        return 1 == jdbc.queryForObject(sql, new MapSqlParameterSource("director_id", id), Integer.class);
+        return dictionaries.directors().contains(id);
     }
 
     @Override
     public Director update(Director director) {
-        final String UPDATE_QUERY = "UPDATE directors SET name=?";
-        jdbcTemplate.update(UPDATE_QUERY, director.getName());
+        final String UPDATE_QUERY = "UPDATE directors SET name=? WHERE director_id=?";
+        jdbcTemplate.update(UPDATE_QUERY, director.getName(), director.getId());
+        dictionaries.directors().refresh();
+        searchIndex.putDirector(director);
+        filmCache.evictAll();
         return director;
     }
 
@@ -76,6 +73,9 @@ public class DirectorDbStorage implements DirectorStorage {
         final String DELETE_BY_ID_QUERY = "DELETE FROM directors WHERE director_id=?";
         jdbcTemplate.update(DELETE_FILM_DIRECTOR_QUERY, id);
         jdbcTemplate.update(DELETE_BY_ID_QUERY, id);
+        dictionaries.directors().refresh();
+        searchIndex.removeDirector(id);
+        filmCache.evictAll();
     }
 
     @Override
@@ -83,6 +83,9 @@ public class DirectorDbStorage implements DirectorStorage {
         final String DELETE_ALL = "DELETE FROM directors";
 
         jdbcTemplate.update(DELETE_ALL);
+        dictionaries.directors().refresh();
+        searchIndex.rebuild();
+        filmCache.evictAll();
     }
 
 }
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Индексы существующих id, через которые storage-классы отвечают на is*Exists без запроса к БД.
+ * Жанры, рейтинги и режиссёры проверяются по {@link ReferenceDictionaries}.
+ */
+@Slf4j
+@Component
+public class ExistenceIndex {
+    private final IdIndex films;
+    private final IdIndex users;
+    private final IdIndex reviews;
+
+    public ExistenceIndex(JdbcTemplate jdbcTemplate) {
+        films = new IdIndex("films", () -> jdbcTemplate.queryForList("SELECT film_id FROM films", Long.class));
+        users = new IdIndex("users", () -> jdbcTemplate.queryForList("SELECT user_id FROM users", Long.class));
+        reviews = new IdIndex("reviews",
+                () -> jdbcTemplate.queryForList("SELECT review_id FROM reviews", Long.class));
+    }
+
+    public IdIndex films() {
+        return films;
+    }
+
+    public IdIndex users() {
+        return users;
+    }
+
+    public IdIndex reviews() {
+        return reviews;
+    }
+
+    @EventListener({ApplicationReadyEvent.class, DataReloadedEvent.class})
+    public void loadAll() {
+        List.of(films, users, reviews).forEach(IdIndex::load);
+        log.info("Индексы существующих id загружены");
+    }
+}
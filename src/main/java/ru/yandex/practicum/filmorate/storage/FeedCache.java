@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.UserEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Последние события ленты пользователей в памяти перед {@link FeedDbStorage}: на пользователя
+ * кольцевой буфер из {@code bufferSize} событий по возрастанию event_id. Число буферов ограничено,
+ * буферы пользователей, давно не читавших ленту, вытесняются.
+ */
+@Slf4j
+@Component
+public class FeedCache {
+    private final int bufferSize;
+    private final Cache<Long, Ring> feeds;
+
+    public FeedCache(@Value("${filmorate.feed.buffer-size:100}") int bufferSize,
+                     @Value("${filmorate.feed.max-buffered-users:10000}") long maxBufferedUsers,
+                     @Value("${filmorate.feed.expire-after-access:PT30M}") Duration expireAfterAccess) {
+        this.bufferSize = bufferSize;
+        this.feeds = Caffeine.newBuilder()
+                .maximumSize(maxBufferedUsers)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+        log.info("Буфер ленты: {} событий на пользователя, до {} пользователей", bufferSize, maxBufferedUsers);
+    }
+
+    public record Tail(List<UserEvent> events, boolean complete) {
+    }
+
+    /**
+     * Хвост ленты пользователя. При промахе загрузчик получает лимит и возвращает столько последних
+     * событий по возрастанию event_id; лимит на одно больше размера буфера, чтобы понять,
+     * помещается ли в буфер вся лента.
+     */
+    public Tail get(Long userId, IntFunction<List<UserEvent>> loader) {
+        return feeds.get(userId, id -> {
+            List<UserEvent> events = loader.apply(bufferSize + 1);
+            Ring ring = new Ring(bufferSize, events.size() <= bufferSize);
+            events.forEach(ring::add);
+            return ring;
+        }).tail();
+    }
+
+    public void append(UserEvent event) {
+        feeds.asMap().computeIfPresent(event.getUserId(), (id, ring) -> {
+            ring.add(event);
+            return ring;
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // событие уже в буфере, а строка в user_event откатится вместе с транзакцией
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        feeds.invalidate(event.getUserId());
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Убирает из буфера событие, которое так и не записалось в user_event.
+     */
+    public void remove(UserEvent event) {
+        feeds.asMap().computeIfPresent(event.getUserId(), (id, ring) -> {
+            ring.remove(event.getEventId());
+            return ring;
+        });
+    }
+
+    public void evict(Long userId) {
+        feeds.invalidate(userId);
+    }
+
+    @EventListener(DataReloadedEvent.class)
+    public void evictAll() {
+        feeds.invalidateAll();
+    }
+
+    private static class Ring {
+        private final UserEvent[] events;
+        private int head;
+        private int size;
+        private boolean complete;
+
+        Ring(int capacity, boolean complete) {
+            this.events = new UserEvent[capacity];
+            this.complete = complete;
+        }
+
+        synchronized void add(UserEvent event) {
+            int position = size;
+            while (position > 0 && at(position - 1).getEventId() >= event.getEventId()) {
+                if (at(position - 1).getEventId().equals(event.getEventId())) {
+                    return;
+                }
+                position--;
+            }
+            if (size == events.length) {
+                complete = false;
+                if (position == 0) {
+                    return;
+                }
+                head = (head + 1) % events.length;
+                size--;
+                position--;
+            }
+            for (int i = size; i > position; i--) {
+                events[(head + i) % events.length] = at(i - 1);
+            }
+            events[(head + position) % events.length] = event;
+            size++;
+        }
+
+        synchronized void remove(Long eventId) {
+            int position = 0;
+            while (position < size && !at(position).getEventId().equals(eventId)) {
+                position++;
+            }
+            if (position == size) {
+                return;
+            }
+            for (int i = position; i < size - 1; i++) {
+                events[(head + i) % events.length] = at(i + 1);
+            }
+            events[(head + size - 1) % events.length] = null;
+            size--;
+        }
+
+        synchronized Tail tail() {
+            List<UserEvent> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(at(i));
+            }
+            return new Tail(result, complete);
+        }
+
+        private UserEvent at(int index) {
+            return events[(head + index) % events.length];
+        }
+    }
+}
@@ -11,13 +11,19 @@ import ru.yandex.practicum.filmorate.model.UserEvent;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
 
 @Repository
 @Primary
 @RequiredArgsConstructor
 public class FeedDbStorage implements FeedStorage {
     private final NamedParameterJdbcOperations jdbc;
+    private final FeedCache feedCache;
+    private final FeedWriter feedWriter;
 
     private static UserEvent mapRowToUserEvent(ResultSet resultSet, int rowNum) throws SQLException {
         return UserEvent.builder()
@@ -32,32 +38,116 @@ public class FeedDbStorage implements FeedStorage {
 
     @Override
     public Collection<UserEvent> getFeed(Long id) {
+        FeedCache.Tail tail = feedCache.get(id, limit -> findLast(id, Long.MAX_VALUE, limit));
+        if (tail.complete()) {
+            return tail.events();
+        }
+        long oldestId = oldestEventId(tail);
+        List<UserEvent> pending = feedWriter.getPending(id).stream()
+                .filter(event -> event.getEventId() < oldestId)
+                .toList();
         String sql = """
             SELECT event_id, user_id, event_type, operation, entity_id, timestamp
             FROM user_event
-            WHERE user_id = :user_id
+            WHERE user_id = :user_id AND event_id < :before_id
             ORDER BY event_id
             """;
 
         MapSqlParameterSource parameterSource = new MapSqlParameterSource();
         parameterSource.addValue("user_id", id);
+        parameterSource.addValue("before_id", oldestId);
 
-        return jdbc.query(sql, parameterSource, FeedDbStorage::mapRowToUserEvent);
+        List<UserEvent> feed = merge(jdbc.query(sql, parameterSource, FeedDbStorage::mapRowToUserEvent), pending);
+        feed.addAll(tail.events());
+        return feed;
     }
 
     @Override
-    public void addEventToFeed(Long userId, EventType eventType, Operation operation, Long entityId) {
+    public Collection<UserEvent> getFeed(Long id, int limit) {
+        FeedCache.Tail tail = feedCache.get(id, size -> findLast(id, Long.MAX_VALUE, size));
+        List<UserEvent> buffered = tail.events();
+        if (buffered.size() >= limit || tail.complete()) {
+            return buffered.subList(Math.max(0, buffered.size() - limit), buffered.size());
+        }
+        List<UserEvent> feed = findLast(id, oldestEventId(tail), limit - buffered.size());
+        feed.addAll(buffered);
+        return feed;
+    }
+
+    private static long oldestEventId(FeedCache.Tail tail) {
+        return tail.events().isEmpty() ? Long.MAX_VALUE : tail.events().get(0).getEventId();
+    }
+
+    /**
+     * Последние {@code limit} событий пользователя с event_id меньше {@code beforeId}
+     * с учётом ещё не записанных в БД.
+     */
+    private List<UserEvent> findLast(Long userId, long beforeId, int limit) {
+        // порядок совпадает с индексом user_event_user: H2 читает его с начала диапазона без сортировки
+        // очередь читается раньше таблицы: записанное между чтениями событие попадёт в выборку из БД
+        List<UserEvent> pending = feedWriter.getPending(userId);
         String sql = """
-            INSERT INTO user_event (user_id, event_type, operation, entity_id)
-            VALUES (:user_id, :event_type, :operation, :entity_id)
+            SELECT event_id, user_id, event_type, operation, entity_id, timestamp
+            FROM user_event
+            WHERE user_id = :user_id AND event_id < :before_id
+            ORDER BY user_id, event_id DESC
+            LIMIT :limit
             """;
 
         MapSqlParameterSource parameterSource = new MapSqlParameterSource();
         parameterSource.addValue("user_id", userId);
-        parameterSource.addValue("event_type", eventType.name());
-        parameterSource.addValue("operation", operation.name());
-        parameterSource.addValue("entity_id", entityId);
+        parameterSource.addValue("before_id", beforeId);
+        parameterSource.addValue("limit", limit);
+
+        List<UserEvent> stored = new ArrayList<>(jdbc.query(sql, parameterSource, FeedDbStorage::mapRowToUserEvent));
+        Collections.reverse(stored);
+        List<UserEvent> events = merge(stored, pending.stream()
+                .filter(event -> event.getEventId() < beforeId)
+                .toList());
+        return events.size() > limit ? new ArrayList<>(events.subList(events.size() - limit, events.size())) : events;
+    }
+
+    private static List<UserEvent> merge(List<UserEvent> stored, List<UserEvent> pending) {
+        if (pending.isEmpty()) {
+            return new ArrayList<>(stored);
+        }
+        TreeMap<Long, UserEvent> events = new TreeMap<>();
+        stored.forEach(event -> events.put(event.getEventId(), event));
+        pending.forEach(event -> events.putIfAbsent(event.getEventId(), event));
+        return new ArrayList<>(events.values());
+    }
+
+    @Override
+    public void addEventToFeed(Long userId, EventType eventType, Operation operation, Long entityId) {
+        UserEvent event = UserEvent.builder()
+                .eventId(feedWriter.nextEventId())
+                .userId(userId)
+                .eventType(eventType)
+                .operation(operation)
+                .entityId(entityId)
+                .timestamp(System.currentTimeMillis())
+                .build();
+
+        // в буфер до записи: если запись не удастся, FeedWriter уберёт событие из буфера
+        feedCache.append(event);
+        feedWriter.write(event);
+    }
+
+    /**
+     * Присваивает событиям event_id и время и записывает их одной пачкой.
+     */
+    @Override
+    public void addEventsToFeed(List<UserEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        long timestamp = System.currentTimeMillis();
+        events.forEach(event -> {
+            event.setEventId(feedWriter.nextEventId());
+            event.setTimestamp(timestamp);
+        });
 
-        jdbc.update(sql, parameterSource);
+        events.forEach(feedCache::append);
+        feedWriter.writeAll(events);
     }
-}
\ No newline at end of file
+}
@@ -4,9 +4,14 @@ import ru.yandex.practicum.filmorate.enums.Operation;
 import ru.yandex.practicum.filmorate.model.UserEvent;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface FeedStorage {
     Collection<UserEvent> getFeed(Long id);
 
+    Collection<UserEvent> getFeed(Long id, int limit);
+
     void addEventToFeed(Long userId, EventType eventType, Operation operation, Long entityId);
-}
\ No newline at end of file
+
+    void addEventsToFeed(List<UserEvent> events);
+}
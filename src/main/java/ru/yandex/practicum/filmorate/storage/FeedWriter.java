@@ -0,0 +1,282 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.UserEvent;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронная запись событий ленты. События получают event_id сразу, попадают в ограниченную очередь
+ * и записываются в user_event пачками в одной транзакции: по достижении {@code batchSize} событий
+ * или через {@code flushInterval} после первого события пачки. Пока событие не записано, оно видно
+ * через {@link #getPending(Long)}. При заполненной очереди вызывающий поток ждёт, а по истечении
+ * {@code offerTimeout} записывает событие сам. Событие, которое не удалось записать, убирается
+ * и из буфера {@link FeedCache}. Поток записи запускается вместе с контекстом, а при остановке
+ * дописывает очередь; до запуска и после остановки события записываются синхронно.
+ */
+@Slf4j
+@Component
+public class FeedWriter implements SmartLifecycle {
+    private static final String INSERT_QUERY = """
+            INSERT INTO user_event (event_id, user_id, event_type, operation, entity_id, timestamp)
+            VALUES (:event_id, :user_id, :event_type, :operation, :entity_id, :timestamp)
+            """;
+
+    private final NamedParameterJdbcOperations jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final FeedCache feedCache;
+    private final BlockingQueue<UserEvent> queue;
+    private final ConcurrentMap<Long, NavigableMap<Long, UserEvent>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong lastEventId = new AtomicLong(-1);
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+    private final boolean virtualThreads;
+    private volatile Thread flusher;
+    private volatile boolean running;
+
+    public FeedWriter(NamedParameterJdbcOperations jdbc,
+                      TransactionTemplate transactionTemplate,
+                      FeedCache feedCache,
+                      @Value("${filmorate.feed.writer.queue-capacity:10000}") int queueCapacity,
+                      @Value("${filmorate.feed.writer.batch-size:500}") int batchSize,
+                      @Value("${filmorate.feed.writer.flush-interval:PT0.05S}") Duration flushInterval,
+                      @Value("${filmorate.feed.writer.offer-timeout:PT1S}") Duration offerTimeout,
+                      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.jdbc = jdbc;
+        this.transactionTemplate = transactionTemplate;
+        this.feedCache = feedCache;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        this.virtualThreads = virtualThreads;
+        log.info("Запись ленты: очередь {}, пачка до {} событий, интервал {}", queueCapacity, batchSize, flushInterval);
+    }
+
+    public long nextEventId() {
+        if (lastEventId.get() < 0) {
+            synchronized (lastEventId) {
+                if (lastEventId.get() < 0) {
+                    Long max = jdbc.getJdbcOperations()
+                            .queryForObject("SELECT COALESCE(MAX(event_id), 0) FROM user_event", Long.class);
+                    lastEventId.set(max);
+                }
+            }
+        }
+        return lastEventId.incrementAndGet();
+    }
+
+    public void write(UserEvent event) {
+        pending.computeIfAbsent(event.getUserId(), id -> new ConcurrentSkipListMap<>()).put(event.getEventId(), event);
+        try {
+            if (running && queue.offer(event, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            log.warn("Очередь записи ленты заполнена, событие {} записывается синхронно", event.getEventId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(List.of(event));
+    }
+
+    /**
+     * Записывает события сразу, одной пачкой в вызывающем потоке, минуя очередь.
+     */
+    public void writeAll(List<UserEvent> events) {
+        events.forEach(event -> pending.computeIfAbsent(event.getUserId(), id -> new ConcurrentSkipListMap<>())
+                .put(event.getEventId(), event));
+        flush(events);
+    }
+
+    /**
+     * Ещё не записанные в БД события пользователя по возрастанию event_id.
+     */
+    public List<UserEvent> getPending(Long userId) {
+        NavigableMap<Long, UserEvent> events = pending.get(userId);
+        return events == null ? List.of() : List.copyOf(events.values());
+    }
+
+    /**
+     * Отбрасывает ещё не записанные события удалённого пользователя.
+     */
+    public void discard(Long userId) {
+        pending.remove(userId);
+    }
+
+    public void discardAll() {
+        pending.clear();
+    }
+
+    /**
+     * После замены данных event_id снова отсчитываются от максимального в user_event.
+     */
+    @EventListener(DataReloadedEvent.class)
+    public void reset() {
+        discardAll();
+        lastEventId.set(-1);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = (virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon())
+                .name("feed-writer")
+                .start(this::run);
+        log.info("Запись ленты запущена");
+    }
+
+    /**
+     * Дожидается потока записи и дописывает оставшиеся в очереди события.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        try {
+            stopFlusher();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<UserEvent> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+        log.info("Запись ленты остановлена, дописано при остановке: {}", rest.size());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Запускается раньше веб-сервера и останавливается после него, чтобы дописать события последних запросов.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Останавливает запись и отбрасывает очередь: события относятся к данным, которые сейчас будут заменены.
+     */
+    public synchronized void pause() throws InterruptedException {
+        stopFlusher();
+        queue.clear();
+        discardAll();
+        log.info("Запись ленты приостановлена");
+    }
+
+    public void resume() {
+        start();
+    }
+
+    private void stopFlusher() throws InterruptedException {
+        running = false;
+        Thread thread = flusher;
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    private void run() {
+        List<UserEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                UserEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    UserEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<UserEvent> events) {
+        List<UserEvent> batch = events.stream()
+                .filter(event -> {
+                    NavigableMap<Long, UserEvent> userEvents = pending.get(event.getUserId());
+                    return userEvents != null && userEvents.containsKey(event.getEventId());
+                })
+                .toList();
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbc.batchUpdate(INSERT_QUERY, batch.stream().map(FeedWriter::toParameters)
+                            .toArray(SqlParameterSource[]::new)));
+            log.debug("Записано событий ленты: {}", batch.size());
+        } catch (DataAccessException e) {
+            // например, пользователь удалён, пока его событие стояло в очереди
+            log.warn("Не удалось записать пачку событий ленты, запись по одному: {}", e.getMessage());
+            for (UserEvent event : batch) {
+                try {
+                    jdbc.update(INSERT_QUERY, toParameters(event));
+                } catch (DataAccessException rowError) {
+                    log.warn("Событие ленты {} отброшено: {}", event.getEventId(), rowError.getMessage());
+                    feedCache.remove(event);
+                }
+            }
+        }
+        batch.forEach(event -> pending.computeIfPresent(event.getUserId(), (id, userEvents) -> {
+            userEvents.remove(event.getEventId());
+            return userEvents.isEmpty() ? null : userEvents;
+        }));
+    }
+
+    private static SqlParameterSource toParameters(UserEvent event) {
+        return new MapSqlParameterSource()
+                .addValue("event_id", event.getEventId())
+                .addValue("user_id", event.getUserId())
+                .addValue("event_type", event.getEventType().name())
+                .addValue("operation", event.getOperation().name())
+                .addValue("entity_id", event.getEntityId())
+                .addValue("timestamp", new Timestamp(event.getTimestamp()));
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashSet;
+
+/**
+ * Собирает полностью заполненные фильмы (рейтинг, жанры, режиссёры, лайки) из одной строки результата.
+ * Связанные id агрегируются в массивы прямо в запросе, а названия берутся из {@link ReferenceDictionaries},
+ * поэтому любое чтение фильмов — один запрос к БД без JOIN со справочниками.
+ */
+@Component
+@RequiredArgsConstructor
+public class FilmAssembler {
+    private static final String SELECT_FILMS = """
+            SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.rating_id,
+                   f.likes_count,
+                   (SELECT ARRAY_AGG(l.user_id ORDER BY l.user_id)
+                    FROM likes l WHERE l.film_id = f.film_id) AS like_ids,
+                   (SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id)
+                    FROM film_genres fg WHERE fg.film_id = f.film_id) AS genre_ids,
+                   (SELECT ARRAY_AGG(fd.director_id ORDER BY fd.director_id)
+                    FROM film_directors fd WHERE fd.film_id = f.film_id) AS director_ids
+            FROM films AS f
+            """;
+
+    private final ReferenceDictionaries dictionaries;
+
+    /**
+     * Возвращает запрос на выборку фильмов с добавленными условиями, сортировкой и лимитом.
+     * В условиях доступен псевдоним {@code f} для таблицы films.
+     */
+    public String select(String clauses) {
+        return SELECT_FILMS + clauses;
+    }
+
+    public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
+        long ratingId = rs.getLong("rating_id");
+        Mpa mpa = rs.wasNull() ? null : dictionaries.mpa().get(ratingId);
+
+        Film film = Film.builder()
+                .id(rs.getLong("film_id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(LocalDate.parse(rs.getString("release_date")))
+                .duration(rs.getInt("duration"))
+                .mpa(mpa)
+                .directors(new HashSet<>())
+                .build();
+
+        for (Object genreId : toArray(rs.getArray("genre_ids"))) {
+            Genre genre = dictionaries.genres().get(((Number) genreId).longValue());
+            if (genre != null) {
+                film.getGenres().add(genre);
+            }
+        }
+
+        for (Object directorId : toArray(rs.getArray("director_ids"))) {
+            Director director = dictionaries.directors().get(((Number) directorId).intValue());
+            if (director != null) {
+                film.getDirectors().add(director);
+            }
+        }
+
+        Object[] likeIds = toArray(rs.getArray("like_ids"));
+        long[] userIds = new long[likeIds.length];
+        for (int i = 0; i < likeIds.length; i++) {
+            userIds[i] = ((Number) likeIds[i]).longValue();
+        }
+        film.setLikes(LikeSet.of(userIds));
+        return film;
+    }
+
+    private static Object[] toArray(Array array) throws SQLException {
+        return array == null ? new Object[0] : (Object[]) array.getArray();
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш полностью собранных фильмов перед {@link FilmDbStorage}.
+ * Параллельные промахи по одному id выполняют одну загрузку, остальные ждут её результат.
+ * Каждый вызов получает свою копию фильма вместе с рейтингом, жанрами и режиссёрами, поэтому
+ * изменения фильма вызывающим кодом не попадают в кэш.
+ */
+@Slf4j
+@Component
+public class FilmCache {
+    private final Cache<Long, Film> films;
+
+    public FilmCache(@Value("${filmorate.cache.films.maximum-size:10000}") long maximumSize,
+                     @Value("${filmorate.cache.films.expire-after-write:PT10M}") Duration expireAfterWrite) {
+        this.films = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        log.info("Кэш фильмов: до {} записей, время жизни {}", maximumSize, expireAfterWrite);
+    }
+
+    public Film get(Long filmId, Function<Long, Film> loader) {
+        return copyOf(films.get(filmId, loader));
+    }
+
+    public Map<Long, Film> getAll(Set<Long> filmIds, Function<Set<? extends Long>, Map<Long, Film>> loader) {
+        Map<Long, Film> cached = films.getAll(filmIds, loader);
+        Map<Long, Film> copies = new HashMap<>(cached.size() * 2);
+        cached.forEach((filmId, film) -> copies.put(filmId, copyOf(film)));
+        return copies;
+    }
+
+    public void evict(Long filmId) {
+        films.invalidate(filmId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // до коммита параллельный промах мог снова положить в кэш старую версию фильма
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    films.invalidate(filmId);
+                }
+            });
+        }
+    }
+
+    @EventListener(DataReloadedEvent.class)
+    public void evictAll() {
+        films.invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    films.invalidateAll();
+                }
+            });
+        }
+    }
+
+    public CacheStats getStats() {
+        com.github.benmanes.caffeine.cache.stats.CacheStats stats = films.stats();
+        return CacheStats.builder()
+                .size(films.estimatedSize())
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .hitRate(stats.hitRate())
+                .loads(stats.loadCount())
+                .loadFailures(stats.loadFailureCount())
+                .averageLoadMillis(stats.averageLoadPenalty() / 1_000_000)
+                .evictions(stats.evictionCount())
+                .build();
+    }
+
+    /**
+     * LikeSet неизменяем и не копируется.
+     */
+    private static Film copyOf(Film film) {
+        if (film == null) {
+            return null;
+        }
+        Mpa mpa = film.getMpa();
+        Film copy = film.toBuilder()
+                .mpa(mpa == null ? null : new Mpa(mpa.getId(), mpa.getName()))
+                .directors(film.getDirectors() == null ? null : film.getDirectors().stream()
+                        .map(director -> new Director(director.getId(), director.getName()))
+                        .collect(Collectors.toCollection(HashSet::new)))
+                .build();
+        copy.addGenres(film.getGenres().stream()
+                .map(genre -> new Genre(genre.getId(), genre.getName()))
+                .collect(Collectors.toSet()));
+        return copy;
+    }
+}
@@ -3,21 +3,29 @@ package ru.yandex.practicum.filmorate.storage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.namedparam.SqlParameterSourceUtils;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.model.*;
-
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.time.LocalDate;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.enums.Operation;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPopularity;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+
+import java.sql.Array;
+import java.sql.BatchUpdateException;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 
 @Repository
@@ -25,20 +33,15 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Slf4j
 public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final NamedParameterJdbcOperations jdbc;
     private final JdbcTemplate jdbcTemplate;
-
-    private static Film mapRowToFilm(ResultSet resultSet, int rowNum) throws SQLException {
-        return Film.builder().id(resultSet.getLong("film_id"))
-                .name(resultSet.getString("name"))
-                .description(resultSet.getString("description"))
-                .releaseDate(LocalDate.parse(resultSet.getString("release_date")))
-                .duration(resultSet.getInt("duration"))
-                .mpa(new Mpa(resultSet.getLong("rating_id"), resultSet.getString("mpa_rating.name")))
-                .directors(new HashSet<>())
-                .likes(new HashSet<>())
-                .build();
-    }
+    private final FilmAssembler filmAssembler;
+    private final FilmCache filmCache;
+    private final ExistenceIndex existenceIndex;
+    private final BulkFetcher bulkFetcher;
+    private final FilmSearchIndex searchIndex;
 
     private void setFilmGenres(Film film) {
         String sql = "DELETE FROM film_genres WHERE film_id = :film_id;";
@@ -64,26 +67,11 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
-    private void loadDirectorsAndGenresToFilm(Film film) {
-        final String FIND_FILM_DIRECTORS = "SELECT d.director_id, d.name " + "FROM film_directors AS fd " + "JOIN directors AS d ON fd.director_id = d.director_id " + "WHERE fd.film_id=?";
-        Set<Director> directors = new HashSet<>(jdbcTemplate.query(FIND_FILM_DIRECTORS, (rs, rowNum) -> new Director(rs.getInt("director_id"), rs.getString("name")), film.getId()));
-        film.setDirectors(directors);
-
-        final String FIND_GENRES_BY_FILM_QUERY = """
-                    SELECT g.genre_id, g.name
-                    FROM genres g
-                    JOIN film_genres fg ON g.genre_id = fg.genre_id
-                    WHERE fg.film_id = ?
-                    ORDER BY g.genre_id ASC;
-                """;
-        Set<Genre> genres = new HashSet<>(jdbcTemplate.query(FIND_GENRES_BY_FILM_QUERY, (rs, rowNum) -> new Genre(rs.getLong("genre_id"), rs.getString("name")), film.getId()));
-        film.addGenres(genres);
-    }
-
-    private void loadLikesToFilm(Film film) {
-        final String FIND_FILM_LIKES = "SELECT user_id FROM likes WHERE film_id=?";
-        Set<Long> likes = new HashSet<>(jdbcTemplate.queryForList(FIND_FILM_LIKES, Long.class, film.getId()));
-        film.setLikes(likes);
+    private void reloadRelations(Film film) {
+        Film stored = film.getId() == null ? null : findById(film.getId());
+        film.setDirectors(stored == null ? new HashSet<>() : new HashSet<>(stored.getDirectors()));
+        film.addGenres(stored == null ? new HashSet<>() : stored.getGenres());
+        film.setLikes(stored == null ? LikeSet.empty() : stored.getLikes());
     }
 
     @Override
@@ -92,390 +80,431 @@ public class FilmDbStorage implements FilmStorage {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
         jdbc.update(sql, new MapSqlParameterSource(film.toMap()), keyHolder);
         film.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        existenceIndex.films().add(film.getId());
         setFilmGenres(film);
         setFilmDirectors(film);
-        loadDirectorsAndGenresToFilm(film);
+        reloadRelations(film);
+        searchIndex.putFilm(film);
         return film;
     }
 
+    /**
+     * Записывает фильмы с жанрами и режиссёрами тремя пакетными запросами в одной транзакции.
+     * Жанры и режиссёры не перечитываются из БД: id в них уже проверены по справочникам.
+     */
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        String sql = "INSERT INTO films (name, description, release_date, duration, rating_id) "
+                + "VALUES (:name, :description, :release_date, :duration, :rating_id);";
+        SqlParameterSource[] batchParams = films.stream()
+                .map(film -> new MapSqlParameterSource(film.toMap()))
+                .toArray(SqlParameterSource[]::new);
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(sql, batchParams, keyHolder, new String[]{"film_id"});
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+
+        List<Object[]> genres = new ArrayList<>();
+        List<Object[]> directors = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            film.setLikes(LikeSet.empty());
+            film.getGenres().stream().map(Genre::getId).distinct()
+                    .forEach(genreId -> genres.add(new Object[]{film.getId(), genreId}));
+            if (film.getDirectors() == null) {
+                film.setDirectors(new HashSet<>());
+            }
+            film.getDirectors().stream().map(Director::getId).distinct()
+                    .forEach(directorId -> directors.add(new Object[]{film.getId(), directorId}));
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genres);
+        jdbcTemplate.batchUpdate("INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)", directors);
+
+        films.forEach(film -> {
+            existenceIndex.films().add(film.getId());
+            searchIndex.putFilm(film);
+        });
+        return films;
+    }
+
     @Override
     public Film update(Film newFilm) {
         String sql = "UPDATE films SET name = :name, description = :description, " + "release_date = :release_date, duration = :duration, rating_id = :rating_id " + "WHERE film_id = :film_id;";
         jdbc.update(sql, new MapSqlParameterSource(newFilm.toMap()));
         setFilmGenres(newFilm);
         setFilmDirectors(newFilm);
-        loadDirectorsAndGenresToFilm(newFilm);
-        loadLikesToFilm(newFilm);
+        if (newFilm.getId() != null) {
+            filmCache.evict(newFilm.getId());
+        }
+        reloadRelations(newFilm);
+        searchIndex.putFilm(newFilm);
         return newFilm;
     }
 
     @Override
     public Collection<Film> getFilms() {
-        String sql = "SELECT f.*, mpa.name AS mpa_rating_name, genres.genre_id, genres.name AS genre_name " +
-                "FROM films AS f " + "LEFT JOIN mpa_rating AS mpa ON f.rating_id = mpa.rating_id " +
-                "LEFT JOIN film_genres AS fg ON f.film_id = fg.film_id " +
-                "LEFT JOIN genres ON fg.genre_id = genres.genre_id " +
-                "ORDER BY f.film_id";
-
-        return jdbc.query(sql, rs -> {
-            List<Film> films = new LinkedList<>();
-            Film film = null;
-            while (rs.next()) {
-                if (film == null || !film.getId().equals(rs.getLong("film_id"))) {
-                    if (film != null) {
-                        films.add(film);
-                    }
-                    film = mapRowToFilm(rs, rs.getRow());
-                }
-                Long genreId = rs.getLong("genre_id");
-                if (!rs.wasNull()) {
-                    film.getGenres().add(new Genre(genreId, rs.getString("genre_name")));
+        String sql = filmAssembler.select("ORDER BY f.likes_count DESC, f.film_id");
+        return jdbc.query(sql, filmAssembler::mapRow);
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        String sql = filmAssembler.select("WHERE f.film_id > :after_id ORDER BY f.film_id LIMIT :limit");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("after_id", afterId)
+                .addValue("limit", limit);
+        return jdbc.query(sql, params, filmAssembler::mapRow);
+    }
+
+    @Override
+    public void streamFilms(long afterId, Consumer<Film> consumer) {
+        String sql = filmAssembler.select("WHERE f.film_id > :after_id ORDER BY f.film_id LIMIT :limit");
+        long[] lastId = {afterId};
+        int[] rows = new int[1];
+        do {
+            rows[0] = 0;
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("after_id", lastId[0])
+                    .addValue("limit", STREAM_CHUNK_SIZE);
+            jdbc.query(sql, params, (RowCallbackHandler) rs -> {
+                Film film = filmAssembler.mapRow(rs, rs.getRow());
+                consumer.accept(film);
+                lastId[0] = film.getId();
+                rows[0]++;
+            });
+        } while (rows[0] == STREAM_CHUNK_SIZE);
+    }
+
+    @Override
+    public Film findById(Long filmId) {
+        return filmId == null ? null : filmCache.get(filmId, this::loadById);
+    }
+
+    private Film loadById(Long filmId) {
+        String sql = filmAssembler.select("WHERE f.film_id = :film_id");
+        List<Film> films = jdbc.query(sql, new MapSqlParameterSource("film_id", filmId), filmAssembler::mapRow);
+        return films.isEmpty() ? null : films.getFirst();
+    }
+
+    @Override
+    public List<Film> findByIds(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Film> films = filmCache.getAll(new HashSet<>(filmIds), this::loadByIds);
+        return filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private Map<Long, Film> loadByIds(Set<? extends Long> filmIds) {
+        String sql = filmAssembler.select("WHERE f.film_id = ANY(:film_ids)");
+        Map<Long, Film> films = new HashMap<>();
+        bulkFetcher.fetch(sql, "film_ids", new ArrayList<>(filmIds), rs -> {
+            Film film = filmAssembler.mapRow(rs, rs.getRow());
+            films.put(film.getId(), film);
+        });
+        return films;
+    }
+
+    @Override
+    public Collection<FilmPopularity> getFilmsPopularity() {
+        String sql = """
+                SELECT f.film_id, f.likes_count, EXTRACT(YEAR FROM f.release_date) AS release_year,
+                       (SELECT ARRAY_AGG(fg.genre_id) FROM film_genres fg WHERE fg.film_id = f.film_id) AS genre_ids
+                FROM films f
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Set<Long> genreIds = new HashSet<>();
+            Array genres = rs.getArray("genre_ids");
+            if (genres != null) {
+                for (Object genreId : (Object[]) genres.getArray()) {
+                    genreIds.add(((Number) genreId).longValue());
                 }
             }
-            if (film != null) {
-                films.add(film);
-            }
-            loadFilmData(films);
-            return films;
+            return FilmPopularity.builder()
+                    .filmId(rs.getLong("film_id"))
+                    .likes(rs.getInt("likes_count"))
+                    .year(rs.getInt("release_year"))
+                    .genreIds(genreIds)
+                    .build();
         });
     }
 
     @Override
-    public Film findById(Long filmId) {
-        String sql = "SELECT f.*, mpa.name AS mpa_rating_name, genres.genre_id, genres.name AS genre_name " +
-                "FROM films AS f " + "LEFT JOIN mpa_rating AS mpa ON f.rating_id = mpa.rating_id " +
-                "LEFT JOIN film_genres AS fg ON f.film_id = fg.film_id " +
-                "LEFT JOIN genres ON fg.genre_id = genres.genre_id " +
-                "WHERE f.film_id = :film_id;";
-        return jdbc.query(sql, new MapSqlParameterSource("film_id", filmId), rs -> {
-            Film film = null;
-            while (rs.next()) {
-                if (film == null) {
-                    film = mapRowToFilm(rs, rs.getRow());
-                }
-                Long genreId = rs.getLong("genre_id");
-                if (!rs.wasNull()) film.getGenres().add(new Genre(genreId, rs.getString("genre_name")));
+    public Map<Long, long[]> getLikedFilmIdsByUser() {
+        String sql = """
+                SELECT user_id, ARRAY_AGG(film_id ORDER BY film_id) AS film_ids
+                FROM likes
+                GROUP BY user_id
+                """;
+        Map<Long, long[]> likes = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            Object[] filmIds = (Object[]) rs.getArray("film_ids").getArray();
+            long[] sorted = new long[filmIds.length];
+            for (int i = 0; i < filmIds.length; i++) {
+                sorted[i] = ((Number) filmIds[i]).longValue();
             }
-            loadDirectorsAndGenresToFilm(film);
-            return film;
+            likes.put(rs.getLong("user_id"), sorted);
         });
+        return likes;
     }
 
     @Override
     public void delete(Long filmId) {
         String sql = "DELETE FROM films WHERE film_id = :film_id;";
         jdbc.update(sql, new MapSqlParameterSource("film_id", filmId));
+        filmCache.evict(filmId);
+        existenceIndex.films().remove(filmId);
+        searchIndex.removeFilm(filmId);
+        existenceIndex.reviews().invalidate();
     }
 
     @Override
     public void deleteAll() {
         String sql = "DELETE FROM films";
         jdbcTemplate.update(sql);
+        filmCache.evictAll();
+        existenceIndex.films().invalidate();
+        searchIndex.rebuild();
+        existenceIndex.reviews().invalidate();
     }
 
     @Override
-    public void addLikeByUser(Long filmId, Long userId) {
-        String checkSql = "SELECT COUNT(*) FROM likes WHERE user_id = ? AND film_id = ?";
-        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, userId, filmId);
-
-        if (count != null && count > 0) {
-            return;
-        }
-
-        String sql = "INSERT INTO likes (user_id, film_id) VALUES (:user_id, :film_id);";
+    @Transactional
+    public boolean addLikeByUser(Long filmId, Long userId) {
+        String sql = """
+                INSERT INTO likes (user_id, film_id)
+                SELECT :user_id, :film_id
+                WHERE NOT EXISTS (SELECT 1 FROM likes WHERE user_id = :user_id AND film_id = :film_id);
+                """;
 
         MapSqlParameterSource parameterSource = new MapSqlParameterSource();
         parameterSource.addValue("user_id", userId);
         parameterSource.addValue("film_id", filmId);
 
-        jdbc.update(sql, parameterSource);
+        try {
+            if (jdbc.update(sql, parameterSource) == 0) {
+                return false;
+            }
+        } catch (DuplicateKeyException e) {
+            log.debug("Лайк пользователя {} фильму {} уже добавлен параллельным запросом", userId, filmId);
+            return false;
+        }
+
+        jdbc.update("UPDATE films SET likes_count = likes_count + 1 WHERE film_id = :film_id;", parameterSource);
+        filmCache.evict(filmId);
+        return true;
     }
 
     @Override
     public Collection<Film> getTopFilms(Integer count, Long genId, Integer year) {
-        String sql = """
-                SELECT f.*,
-                       mpa.name AS mpa_rating_name,
-                       COUNT(l.user_id) AS likes_count
-                FROM films f
-                LEFT JOIN mpa_rating mpa ON f.rating_id = mpa.rating_id
-                LEFT JOIN film_genres fg ON f.film_id = fg.film_id
-                LEFT JOIN likes l ON f.film_id = l.film_id
-                WHERE (:genreId IS NULL OR fg.genre_id = :genreId)
+        String sql = filmAssembler.select("""
+                WHERE (:genreId IS NULL OR EXISTS (
+                    SELECT 1 FROM film_genres fg WHERE fg.film_id = f.film_id AND fg.genre_id = :genreId))
                   AND (:year IS NULL OR EXTRACT(YEAR FROM f.release_date) = :year)
-                GROUP BY f.film_id, mpa.rating_id, f.name, f.description, f.release_date, f.duration
-                ORDER BY likes_count DESC
+                ORDER BY f.likes_count DESC, f.film_id
                 LIMIT :count
-                """;
+                """);
 
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("genreId", genId)
                 .addValue("year", year)
                 .addValue("count", count);
 
-        return jdbc.query(sql, params, rs -> {
-            List<Film> films = new LinkedList<>();
-            while (rs.next()) {
-                Film film = mapRowToFilm(rs, rs.getRow());
-                films.add(film);
-            }
-            loadFilmData(films);
-            return films;
-        });
+        return jdbc.query(sql, params, filmAssembler::mapRow);
     }
 
     @Override
     public Collection<Film> getCommonFilms(Long userId, Long friendId) {
-        String sql = """
-                SELECT
-                    f.film_id,
-                    f.name,
-                    f.description,
-                    f.release_date,
-                    f.duration,
-                    f.rating_id,
-                    r.name AS rating_name,
-                    g.genre_id,
-                    g.name AS genre_name,
-                    COUNT(l.user_id) AS likes_count
-                FROM films f
-                JOIN likes l ON f.film_id = l.film_id
-                JOIN mpa_rating r ON f.rating_id = r.rating_id
-                LEFT JOIN film_genres fg ON f.film_id = fg.film_id
-                LEFT JOIN genres g ON fg.genre_id = g.genre_id
+        String sql = filmAssembler.select("""
                 WHERE f.film_id IN (
                     SELECT film_id FROM likes WHERE user_id = :user_id
                     INTERSECT
                     SELECT film_id FROM likes WHERE user_id = :friend_id
                 )
-                GROUP BY f.film_id, r.name, g.genre_id, g.name
-                ORDER BY likes_count DESC;
-                """;
+                ORDER BY f.likes_count DESC, f.film_id
+                """);
 
         MapSqlParameterSource parameterSource = new MapSqlParameterSource();
         parameterSource.addValue("user_id", userId);
         parameterSource.addValue("friend_id", friendId);
 
-        return jdbc.query(sql, parameterSource, rs -> {
-            List<Film> films = new LinkedList<>();
-            Film film = null;
-            while (rs.next()) {
-                if (film == null || !film.getId().equals(rs.getLong("film_id"))) {
-                    if (film != null) {
-                        films.add(film);
-                    }
-                    film = mapRowToFilm(rs, rs.getRow());
-                }
-                Long genreId = rs.getLong("genre_id");
-                if (!rs.wasNull()) {
-                    film.getGenres().add(new Genre(genreId, rs.getString("genre_name")));
-                }
-            }
-            if (film != null) {
-                films.add(film);
-            }
-            loadFilmData(films);
-            return films;
-        });
+        return jdbc.query(sql, parameterSource, filmAssembler::mapRow);
     }
 
     public Collection<Film> getFilmsByDirectorId(int directorId) {
-        final String FIND_FILMS_BY_DIRECTOR = "SELECT f.*, mpa.name AS mpa_rating_name, genres.genre_id, genres.name AS genre_name " + "FROM films AS f " + "LEFT JOIN mpa_rating AS mpa ON f.rating_id = mpa.rating_id " + "LEFT JOIN film_genres AS fg ON f.film_id = fg.film_id " + "LEFT JOIN genres ON fg.genre_id = genres.genre_id " + "LEFT JOIN film_directors AS fd ON fd.film_id = f.film_id " + "WHERE fd.director_id=?";
+        String sql = filmAssembler.select("""
+                WHERE EXISTS (
+                    SELECT 1 FROM film_directors fd WHERE fd.film_id = f.film_id AND fd.director_id = :director_id)
+                ORDER BY f.likes_count DESC, f.film_id
+                """);
 
-        List<Film> films = jdbcTemplate.query(FIND_FILMS_BY_DIRECTOR, FilmDbStorage::mapRowToFilm, directorId);
-        loadFilmData(films);
-        return films;
+        return jdbc.query(sql, new MapSqlParameterSource("director_id", directorId), filmAssembler::mapRow);
     }
 
     @Override
     public List<Film> findRecommendations(Long similarUserId, Long userId) {
-        final String RECOMMENDATION_QUERY = """
-                    SELECT
-                        f.film_id AS film_id,
-                        f.name,
-                        f.description,
-                        f.release_date,
-                        f.duration,
-                        f.rating_id,
-                        r.name AS rating_name
-                    FROM films f
-                    JOIN likes l_sim ON f.film_id = l_sim.film_id
-                    LEFT JOIN mpa_rating r ON f.rating_id = r.rating_id
-                    WHERE l_sim.user_id = :simId
-                      AND NOT EXISTS (
-                        SELECT 1 FROM likes l_user
-                        WHERE l_user.user_id = :userId
-                          AND l_user.film_id = f.film_id
-                      )
-                """.stripIndent();
+        String sql = filmAssembler.select("""
+                WHERE f.film_id IN (SELECT l_sim.film_id FROM likes l_sim WHERE l_sim.user_id = :simId)
+                  AND NOT EXISTS (
+                    SELECT 1 FROM likes l_user
+                    WHERE l_user.user_id = :userId
+                      AND l_user.film_id = f.film_id
+                  )
+                ORDER BY f.likes_count DESC, f.film_id
+                """);
 
         MapSqlParameterSource pr = new MapSqlParameterSource()
                 .addValue("simId", similarUserId)
                 .addValue("userId", userId);
-        List<Film> films = jdbc.query(RECOMMENDATION_QUERY, pr, FilmDbStorage::mapRowToFilm);
-        loadFilmData(films);
-        return films;
-    }
-
-    private User mapRowToUser(ResultSet resultSet, int rowNum) throws SQLException {
-        return User.builder()
-                .id(resultSet.getLong("user_id"))
-                .email(resultSet.getString("email"))
-                .login(resultSet.getString("login"))
-                .name(resultSet.getString("name"))
-                .birthday(LocalDate.parse(resultSet.getString("birthday")))
-                .build();
+        return jdbc.query(sql, pr, filmAssembler::mapRow);
     }
 
     @Override
-    public void removeLike(Long filmId, Long userId) {
+    @Transactional
+    public boolean removeLike(Long filmId, Long userId) {
         String sql = "DELETE FROM likes WHERE user_id = :user_id AND film_id = :film_id;";
 
         MapSqlParameterSource parameterSource = new MapSqlParameterSource();
         parameterSource.addValue("user_id", userId);
         parameterSource.addValue("film_id", filmId);
-        jdbc.update(sql, parameterSource);
+        if (jdbc.update(sql, parameterSource) == 0) {
+            return false;
+        }
+        jdbc.update("UPDATE films SET likes_count = likes_count - 1 WHERE film_id = :film_id;", parameterSource);
+        filmCache.evict(filmId);
+        return true;
     }
 
+    /**
+     * Ставит и снимает лайки одним пакетом MERGE в одной транзакции и пересчитывает likes_count одним
+     * пакетом по фильмам. Пары фильм-пользователь в операциях не повторяются. Строки likes и films
+     * меняются по возрастанию (film_id, user_id), поэтому встречные пакеты ждут друг друга, а не
+     * взаимоблокируются. Возвращает, изменила ли каждая операция таблицу likes.
+     */
     @Override
-    public boolean isFilmExists(Long filmId) {
-        String sql = "SELECT COUNT(*) FROM films WHERE film_id = :film_id;";
-        return 1 == jdbc.queryForObject(sql, new MapSqlParameterSource("film_id", filmId), Integer.class);
+    @Transactional
+    public boolean[] applyLikes(List<LikeOperation> operations) {
+        String sql = """
+                MERGE INTO likes l
+                USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BOOLEAN))) AS s (user_id, film_id, liked)
+                ON l.user_id = s.user_id AND l.film_id = s.film_id
+                WHEN MATCHED AND NOT s.liked THEN DELETE
+                WHEN NOT MATCHED AND s.liked THEN INSERT (user_id, film_id) VALUES (s.user_id, s.film_id)
+                """;
+
+        List<Integer> order = IntStream.range(0, operations.size()).boxed()
+                .sorted(Comparator.comparing((Integer i) -> operations.get(i).getFilmId())
+                        .thenComparing(i -> operations.get(i).getUserId()))
+                .toList();
+        int[] counts = batchUpdateSkippingDuplicates(sql, order.stream()
+                .map(operations::get)
+                .map(operation -> new Object[]{operation.getUserId(), operation.getFilmId(),
+                        operation.getOp() == Operation.ADD})
+                .toList());
+
+        boolean[] changed = new boolean[operations.size()];
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                LikeOperation operation = operations.get(order.get(i));
+                changed[order.get(i)] = true;
+                deltas.merge(operation.getFilmId(), operation.getOp() == Operation.ADD ? 1 : -1, Integer::sum);
+            }
+        }
+
+        jdbcTemplate.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?",
+                deltas.entrySet().stream()
+                        .filter(delta -> delta.getValue() != 0)
+                        .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                        .toList());
+        deltas.keySet().forEach(filmCache::evict);
+        return changed;
+    }
+
+    /**
+     * Параллельный запрос мог поставить тот же лайк между проверкой MERGE и вставкой. Такая строка пакета
+     * ничего не меняет, остальные строки пакета при этом выполнены.
+     */
+    private int[] batchUpdateSkippingDuplicates(String sql, List<Object[]> rows) {
+        try {
+            return jdbcTemplate.batchUpdate(sql, rows);
+        } catch (DuplicateKeyException e) {
+            if (e.getCause() instanceof BatchUpdateException batch && batch.getUpdateCounts().length == rows.size()) {
+                log.debug("Часть лайков пакета уже поставлена параллельными запросами: {}", e.getMessage());
+                return batch.getUpdateCounts();
+            }
+            throw e;
+        }
     }
 
     @Override
-    public List<Film> searchByTitle(String query) {
+    public int reconcileLikeCounters() {
         String sql = """
-                SELECT DISTINCT f.*, mpa.name AS mpa_rating_name
-                FROM films f
-                LEFT JOIN mpa_rating mpa ON f.rating_id = mpa.rating_id
-                WHERE LOWER(f.name) LIKE LOWER(?)
+                UPDATE films f
+                SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)
+                WHERE likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id);
                 """;
+        int fixed = jdbcTemplate.update(sql);
+        if (fixed > 0) {
+            filmCache.evictAll();
+        }
+        return fixed;
+    }
 
-        List<Film> films = jdbcTemplate.query(
-                sql,
-                FilmDbStorage::mapRowToFilm,
-                "%" + query.toLowerCase() + "%"
-        );
+    @Override
+    public boolean isFilmExists(Long filmId) {
+        return existenceIndex.films().contains(filmId);
+    }
 
-        loadFilmData(films);
-        return films;
+    @Override
+    public List<Film> searchByTitle(String query) {
+        String sql = filmAssembler.select("""
+                WHERE LOWER(f.name) LIKE :pattern
+                ORDER BY f.likes_count DESC, f.film_id
+                """);
+
+        return jdbc.query(sql, new MapSqlParameterSource("pattern", toSearchPattern(query)), filmAssembler::mapRow);
     }
 
     @Override
     public List<Film> searchByDirector(String query) {
-        String sql = """
-                SELECT DISTINCT f.*, mpa.name AS mpa_rating_name
-                FROM films f
-                LEFT JOIN mpa_rating mpa ON f.rating_id = mpa.rating_id
+        String sql = filmAssembler.select("""
                 WHERE f.film_id IN (
                     SELECT fd.film_id
                     FROM film_directors fd
                     JOIN directors d ON fd.director_id = d.director_id
-                    WHERE LOWER(d.name) LIKE LOWER(?)
+                    WHERE LOWER(d.name) LIKE :pattern
                 )
-                """;
-
-        List<Film> films = jdbcTemplate.query(
-                sql,
-                FilmDbStorage::mapRowToFilm,
-                "%" + query.toLowerCase() + "%"
-        );
+                ORDER BY f.likes_count DESC, f.film_id
+                """);
 
-        loadFilmData(films);
-        return films;
+        return jdbc.query(sql, new MapSqlParameterSource("pattern", toSearchPattern(query)), filmAssembler::mapRow);
     }
 
     @Override
     public List<Film> searchByBoth(String query) {
-        String sql = """
-                SELECT DISTINCT f.*, mpa.name AS mpa_rating_name
-                FROM films f
-                LEFT JOIN mpa_rating mpa ON f.rating_id = mpa.rating_id
-                WHERE LOWER(f.name) LIKE LOWER(?)
+        String sql = filmAssembler.select("""
+                WHERE LOWER(f.name) LIKE :pattern
                 OR f.film_id IN (
                     SELECT fd.film_id
                     FROM film_directors fd
                     JOIN directors d ON fd.director_id = d.director_id
-                    WHERE LOWER(d.name) LIKE LOWER(?)
+                    WHERE LOWER(d.name) LIKE :pattern
                 )
-                """;
+                ORDER BY f.likes_count DESC, f.film_id
+                """);
 
-        String searchPattern = "%" + query.toLowerCase() + "%";
-        List<Film> films = jdbcTemplate.query(
-                sql,
-                FilmDbStorage::mapRowToFilm,
-                searchPattern, searchPattern
-        );
-
-        loadFilmData(films);
-        return films;
+        return jdbc.query(sql, new MapSqlParameterSource("pattern", toSearchPattern(query)), filmAssembler::mapRow);
     }
 
-    private void loadFilmData(List<Film> films) {
-        Map<Long, Film> filmMap = films.stream()
-                .collect(Collectors.toMap(Film::getId, Function.identity()));
-
-        if (!filmMap.isEmpty()) {
-            String directorsSql = """
-                    SELECT fd.film_id, d.director_id, d.name
-                    FROM film_directors fd
-                    JOIN directors d ON fd.director_id = d.director_id
-                    WHERE fd.film_id IN (%s)
-                    """.formatted(
-                    filmMap.keySet().stream()
-                            .map(String::valueOf)
-                            .collect(Collectors.joining(","))
-            );
-
-            jdbcTemplate.query(directorsSql, (rs) -> {
-                Film film = filmMap.get(rs.getLong("film_id"));
-                if (film != null) {
-                    film.getDirectors().add(new Director(
-                            rs.getInt("director_id"),
-                            rs.getString("name")
-                    ));
-                }
-            });
-        }
-
-        if (!filmMap.isEmpty()) {
-            String likesSql = "SELECT film_id, user_id FROM likes WHERE film_id IN (" +
-                    filmMap.keySet().stream()
-                            .map(String::valueOf)
-                            .collect(Collectors.joining(",")) + ")";
-
-            jdbcTemplate.query(likesSql, (rs) -> {
-                Film film = filmMap.get(rs.getLong("film_id"));
-                if (film != null) {
-                    film.getLikes().add(rs.getLong("user_id"));
-                }
-            });
-        }
-
-        if (!filmMap.isEmpty()) {
-            String genresSql = """
-                    SELECT fg.film_id, g.genre_id, g.name
-                    FROM film_genres fg
-                    JOIN genres g ON fg.genre_id = g.genre_id
-                    WHERE fg.film_id IN (%s)
-                    """.formatted(
-                    filmMap.keySet().stream()
-                            .map(String::valueOf)
-                            .collect(Collectors.joining(","))
-            );
-
-            jdbcTemplate.query(genresSql, rs -> {
-                Film film = filmMap.get(rs.getLong("film_id"));
-                if (film != null) {
-                    film.getGenres().add(new Genre(
-                            rs.getLong("genre_id"),
-                            rs.getString("name")
-                    ));
-                }
-            });
-        }
-
-        films.sort((f1, f2) -> Integer.compare(f2.getLikes().size(), f1.getLikes().size()));
+    private static String toSearchPattern(String query) {
+        return "%" + query.toLowerCase() + "%";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Инвертированный индекс подстрок по названиям фильмов и именам режиссёров для поиска фильмов.
+ * Индексируются все подстроки длиной до {@value #GRAM_LENGTH} символов: короткий запрос сам является
+ * ключом индекса, а для длинного пересекаются списки его триграмм и кандидаты проверяются на вхождение.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDictionaries dictionaries;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> titles = new HashMap<>();
+    private final Map<String, Set<Long>> titleGrams = new HashMap<>();
+    private final Map<Integer, String> directorNames = new HashMap<>();
+    private final Map<String, Set<Integer>> directorGrams = new HashMap<>();
+    private final Map<Long, Set<Integer>> directorsByFilm = new HashMap<>();
+    private final Map<Integer, Set<Long>> filmsByDirector = new HashMap<>();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Set<Long> search(String query, boolean byTitle, boolean byDirector) {
+        String text = normalize(query);
+        lock.readLock().lock();
+        try {
+            Set<Long> filmIds = new HashSet<>();
+            if (byTitle) {
+                filmIds.addAll(match(text, titleGrams, titles));
+            }
+            if (byDirector) {
+                for (Integer directorId : match(text, directorGrams, directorNames)) {
+                    filmIds.addAll(filmsByDirector.getOrDefault(directorId, Set.of()));
+                }
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void putFilm(Film film) {
+        if (film.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                return;
+            }
+            unlinkFilm(film.getId());
+            index(film.getId(), normalize(film.getName()), titles, titleGrams);
+            Set<Integer> directorIds = new HashSet<>();
+            if (film.getDirectors() != null) {
+                film.getDirectors().stream().map(Director::getId).forEach(directorIds::add);
+            }
+            directorIds.forEach(directorId -> link(film.getId(), directorId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            if (ready) {
+                unlinkFilm(filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(Director director) {
+        if (director.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                return;
+            }
+            unindex(director.getId(), directorNames, directorGrams);
+            index(director.getId(), normalize(director.getName()), directorNames, directorGrams);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(Integer directorId) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                return;
+            }
+            unindex(directorId, directorNames, directorGrams);
+            Set<Long> filmIds = filmsByDirector.remove(directorId);
+            if (filmIds != null) {
+                filmIds.forEach(filmId -> {
+                    Set<Integer> directorIds = directorsByFilm.get(filmId);
+                    if (directorIds != null) {
+                        directorIds.remove(directorId);
+                    }
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener({ApplicationReadyEvent.class, DataReloadedEvent.class})
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            titleGrams.clear();
+            directorNames.clear();
+            directorGrams.clear();
+            directorsByFilm.clear();
+            filmsByDirector.clear();
+
+            jdbcTemplate.query("SELECT film_id, name FROM films", rs -> {
+                index(rs.getLong("film_id"), normalize(rs.getString("name")), titles, titleGrams);
+            });
+            dictionaries.directors().values().forEach(director ->
+                    index(director.getId(), normalize(director.getName()), directorNames, directorGrams));
+            jdbcTemplate.query("SELECT film_id, director_id FROM film_directors", rs -> {
+                link(rs.getLong("film_id"), rs.getInt("director_id"));
+            });
+            ready = true;
+            log.info("Поисковый индекс построен: фильмов {}, режиссёров {}", titles.size(), directorNames.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void link(Long filmId, Integer directorId) {
+        directorsByFilm.computeIfAbsent(filmId, id -> new HashSet<>()).add(directorId);
+        filmsByDirector.computeIfAbsent(directorId, id -> new HashSet<>()).add(filmId);
+    }
+
+    private void unlinkFilm(Long filmId) {
+        unindex(filmId, titles, titleGrams);
+        Set<Integer> directorIds = directorsByFilm.remove(filmId);
+        if (directorIds != null) {
+            directorIds.forEach(directorId -> {
+                Set<Long> filmIds = filmsByDirector.get(directorId);
+                if (filmIds != null) {
+                    filmIds.remove(filmId);
+                }
+            });
+        }
+    }
+
+    private static <K> Set<K> match(String query, Map<String, Set<K>> grams, Map<K, String> texts) {
+        if (query.isEmpty()) {
+            return new HashSet<>(texts.keySet());
+        }
+        if (query.length() <= GRAM_LENGTH) {
+            return new HashSet<>(grams.getOrDefault(query, Set.of()));
+        }
+
+        List<Set<K>> postings = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            Set<K> posting = grams.get(query.substring(i, i + GRAM_LENGTH));
+            if (posting == null) {
+                return Set.of();
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+
+        Set<K> result = new HashSet<>();
+        Predicate<K> inAll = id -> postings.stream().allMatch(posting -> posting.contains(id));
+        for (K id : postings.getFirst()) {
+            if (inAll.test(id) && texts.get(id).contains(query)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static <K> void index(K id, String text, Map<K, String> texts, Map<String, Set<K>> grams) {
+        texts.put(id, text);
+        for (String gram : grams(text)) {
+            grams.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+        }
+    }
+
+    private static <K> void unindex(K id, Map<K, String> texts, Map<String, Set<K>> grams) {
+        String text = texts.remove(id);
+        if (text == null) {
+            return;
+        }
+        for (String gram : grams(text)) {
+            Set<K> posting = grams.get(gram);
+            if (posting != null && posting.remove(id) && posting.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                grams.add(text.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
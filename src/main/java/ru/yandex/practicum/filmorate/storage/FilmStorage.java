@@ -1,30 +1,50 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPopularity;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
     Collection<Film> getFilms();
 
+    List<Film> getFilmsPage(long afterId, int limit);
+
+    void streamFilms(long afterId, Consumer<Film> consumer);
+
     Film findById(Long filmId);
 
+    List<Film> findByIds(List<Long> filmIds);
+
+    Collection<FilmPopularity> getFilmsPopularity();
+
+    Map<Long, long[]> getLikedFilmIdsByUser();
+
     void delete(Long filmId);
 
     void deleteAll();
 
-    void addLikeByUser(Long filmId, Long userId);
+    boolean addLikeByUser(Long filmId, Long userId);
 
     Collection<Film> getTopFilms(Integer count, Long genreId, Integer year);
 
     Collection<Film> getCommonFilms(Long userId, Long friendId);
 
-    void removeLike(Long filmId, Long userId);
+    boolean removeLike(Long filmId, Long userId);
+
+    boolean[] applyLikes(List<LikeOperation> operations);
+
+    int reconcileLikeCounters();
 
     boolean isFilmExists(Long filmId);
 
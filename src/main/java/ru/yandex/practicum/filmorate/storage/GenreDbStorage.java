@@ -2,14 +2,13 @@ package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -20,36 +19,26 @@ import java.util.Optional;
 public class GenreDbStorage implements GenreStorage {
     private final NamedParameterJdbcOperations jdbc;
     private final JdbcTemplate jdbcTemplate;
-
-    private Genre mapRowToGenre(ResultSet resultSet, int rawNum) throws SQLException {
-        return Genre.builder()
-                .id(resultSet.getLong("genre_id"))
-                .name(resultSet.getString("name"))
-                .build();
-    }
+    private final FilmCache filmCache;
+    private final ReferenceDictionaries dictionaries;
 
     @Override
     public Genre getGenreById(Long genreId) {
-        String sqlQuery = "SELECT * FROM genres WHERE genre_id = :genre_id;";
-
-        return jdbc.queryForObject(sqlQuery, new MapSqlParameterSource("genre_id", genreId),
-                this::mapRowToGenre);
+        Genre genre = dictionaries.genres().get(genreId);
+        if (genre == null) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        return genre;
     }
 
     @Override
     public Collection<Genre> findAll() {
-        String sqlQuery = "SELECT * FROM genres ORDER BY genre_id;";
-        return jdbc.query(sqlQuery, this::mapRowToGenre);
+        return dictionaries.genres().values();
     }
 
     @Override
     public boolean isGenreExists(Long genreId) {
-        String sqlQuery = "SELECT COUNT(*) FROM genres WHERE genre_id = :genre_id;";
-
-        Integer count = jdbc.queryForObject(sqlQuery, new MapSqlParameterSource("genre_id", genreId),
-                Integer.class);
-
-        return count != null && count == 1;
+        return dictionaries.genres().contains(genreId);
     }
 
     @Override
@@ -57,12 +46,7 @@ public class GenreDbStorage implements GenreStorage {
         if (genreId == null || genreId.isEmpty()) {
             return true;
         }
-        String sqlQuery = "SELECT COUNT(*) FROM genres WHERE genre_id IN (:genre_id);";
-
-        Integer count = jdbc.queryForObject(sqlQuery,
-                new MapSqlParameterSource("genre_id", genreId), Integer.class);
-
-        return count != null && count == genreId.size();
+        return dictionaries.genres().containsAll(genreId);
     }
 
     @Override
@@ -70,6 +54,8 @@ public class GenreDbStorage implements GenreStorage {
         deleteRelated(Optional.of(id));
         String sql = "DELETE FROM genres WHERE genre_id = :genre_id;";
         jdbc.update(sql, new MapSqlParameterSource("genre_id", id));
+        filmCache.evictAll();
+        dictionaries.genres().refresh();
     }
 
     @Override
@@ -77,6 +63,8 @@ public class GenreDbStorage implements GenreStorage {
         deleteRelated(Optional.empty());
         String sql = "DELETE FROM genres";
         jdbcTemplate.update(sql);
+        filmCache.evictAll();
+        dictionaries.genres().refresh();
     }
 
     private void deleteRelated(Optional<Long> genreId) {
@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Множество существующих id одной таблицы в виде битовой карты.
+ * Загружается из БД при первом обращении; после {@link #invalidate()} перечитывается заново.
+ */
+@Slf4j
+public class IdIndex {
+    private static final long MAX_DENSE_ID = 1L << 27;
+
+    private final String name;
+    private final Supplier<Collection<Long>> loader;
+    private volatile AtomicLongArray words;
+    private final Set<Long> sparse = ConcurrentHashMap.newKeySet();
+
+    public IdIndex(String name, Supplier<Collection<Long>> loader) {
+        this.name = name;
+        this.loader = loader;
+    }
+
+    public boolean contains(Long id) {
+        if (id == null || id < 0) {
+            return false;
+        }
+        AtomicLongArray current = words;
+        if (current == null) {
+            current = loadWords();
+        }
+        if (id >= MAX_DENSE_ID) {
+            return sparse.contains(id);
+        }
+        int word = (int) (id >>> 6);
+        return word < current.length() && (current.get(word) & (1L << id)) != 0;
+    }
+
+    public void add(Long id) {
+        set(id, true);
+        invalidateOnRollback();
+    }
+
+    public void remove(Long id) {
+        set(id, false);
+        invalidateOnRollback();
+    }
+
+    private void invalidateOnRollback() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // после отката индекс перечитает состояние из БД
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        invalidate();
+                    }
+                }
+            });
+        }
+    }
+
+    public synchronized void invalidate() {
+        words = null;
+        sparse.clear();
+    }
+
+    public void load() {
+        loadWords();
+    }
+
+    private synchronized AtomicLongArray loadWords() {
+        if (words != null) {
+            return words;
+        }
+        Collection<Long> ids = loader.get();
+        long maxId = ids.stream().filter(id -> id < MAX_DENSE_ID).mapToLong(Long::longValue).max().orElse(0);
+        AtomicLongArray loaded = new AtomicLongArray(wordsFor(maxId));
+        sparse.clear();
+        for (Long id : ids) {
+            if (id >= MAX_DENSE_ID) {
+                sparse.add(id);
+            } else {
+                loaded.set((int) (id >>> 6), loaded.get((int) (id >>> 6)) | (1L << id));
+            }
+        }
+        words = loaded;
+        log.debug("Индекс id {} загружен, записей: {}", name, ids.size());
+        return loaded;
+    }
+
+    private synchronized void set(Long id, boolean present) {
+        if (id == null || id < 0 || words == null) {
+            // незагруженный индекс прочитает актуальное состояние из БД при первом обращении
+            return;
+        }
+        if (id >= MAX_DENSE_ID) {
+            if (present) {
+                sparse.add(id);
+            } else {
+                sparse.remove(id);
+            }
+            return;
+        }
+        int word = (int) (id >>> 6);
+        AtomicLongArray current = words;
+        if (word >= current.length()) {
+            if (!present) {
+                return;
+            }
+            AtomicLongArray grown = new AtomicLongArray(Math.max(wordsFor(id), current.length() * 2));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            current = grown;
+        }
+        long bit = 1L << id;
+        current.set(word, present ? current.get(word) | bit : current.get(word) & ~bit);
+        words = current;
+    }
+
+    private static int wordsFor(long maxId) {
+        return (int) (maxId >>> 6) + 1;
+    }
+}
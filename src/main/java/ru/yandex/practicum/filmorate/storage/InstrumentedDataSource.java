@@ -0,0 +1,288 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Обёртка над пулом соединений, которая замеряет выполнение SQL и считает строки результата.
+ * Соединения, запросы и результаты заменяются динамическими прокси: перехватываются только создание запросов,
+ * вызовы {@code execute*}, {@code getUpdateCount}, {@code next} и {@code close} результата, остальное
+ * уходит драйверу как есть. Запрос относится к методу хранилища, выполняющемуся в текущем потоке
+ * (см. {@link #enter(String)}); вне таких методов имя один раз ищется по стеку вызовов для каждого текста SQL
+ * и запоминается.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+    private static final ThreadLocal<String> CURRENT_QUERY = new ThreadLocal<>();
+    private static final String APPLICATION_PACKAGE = "ru.yandex.practicum.filmorate.";
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    private static final String UNKNOWN_QUERY = "other";
+    private static final int MAX_CALLERS = 1000;
+    private static final ClassLoader CLASS_LOADER = InstrumentedDataSource.class.getClassLoader();
+
+    private final QueryMetrics metrics;
+    private final ConcurrentMap<String, String> callers = new ConcurrentHashMap<>();
+
+    public InstrumentedDataSource(DataSource target, QueryMetrics metrics) {
+        super(target);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Делает {@code name} именем запросов текущего потока и возвращает предыдущее имя для {@link #exit(String)}.
+     */
+    public static String enter(String name) {
+        String previous = CURRENT_QUERY.get();
+        CURRENT_QUERY.set(name);
+        return previous;
+    }
+
+    public static void exit(String previous) {
+        if (previous == null) {
+            CURRENT_QUERY.remove();
+        } else {
+            CURRENT_QUERY.set(previous);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    QueryMetrics.Query query(String sql) {
+        String name = CURRENT_QUERY.get();
+        if (name == null && sql != null) {
+            name = callers.get(sql);
+        }
+        if (name == null) {
+            name = caller();
+            if (sql != null && callers.size() < MAX_CALLERS) {
+                callers.putIfAbsent(sql, name);
+            }
+        }
+        return metrics.get(name);
+    }
+
+    private static String caller() {
+        return STACK_WALKER.walk(frames -> frames
+                        .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                                && !frame.getClassName().startsWith(InstrumentedDataSource.class.getName())
+                                && !frame.getClassName().contains("$$"))
+                        .findFirst()
+                        .map(InstrumentedDataSource::queryName))
+                .orElse(UNKNOWN_QUERY);
+    }
+
+    private static String queryName(StackWalker.StackFrame frame) {
+        String className = frame.getClassName();
+        String method = frame.getMethodName();
+        if (method.startsWith("lambda$")) {
+            // lambda$flush$3 -> flush
+            method = method.split("\\$")[1];
+        }
+        return className.substring(className.lastIndexOf('.') + 1) + "." + method;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Вызов метода драйвера без обёртки {@link InvocationTargetException}. Сравнение и хэш прокси — по ссылке.
+     */
+    private static Object delegate(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            default -> {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+
+    /**
+     * Оборачивает создаваемые запросы; вызовы хранимых процедур не замеряются.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = delegate(proxy, target, method, args);
+            if (result instanceof CallableStatement) {
+                return result;
+            }
+            if (result instanceof PreparedStatement statement) {
+                // имя подготовленного запроса определяется при подготовке
+                StatementHandler handler = new StatementHandler(statement, (Connection) proxy);
+                handler.query = query((String) args[0]);
+                return proxy(PreparedStatement.class, handler);
+            }
+            if (result instanceof Statement statement) {
+                return proxy(Statement.class, new StatementHandler(statement, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Замеряет {@code execute*} и считает строки: изменённые — по результату выполнения или
+     * {@code getUpdateCount}, прочитанные — по результату запроса.
+     */
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Connection connection;
+        private QueryMetrics.Query query;
+        private String batchSql;
+        private boolean updateCounted;
+
+        StatementHandler(Statement target, Connection connection) {
+            this.target = target;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+            switch (name) {
+                case "getUpdateCount", "getLargeUpdateCount" -> {
+                    Number count = (Number) delegate(proxy, target, method, args);
+                    if (!updateCounted && query != null) {
+                        updateCounted = true;
+                        query.addRows(Math.max(0, count.longValue()));
+                    }
+                    return count;
+                }
+                case "getResultSet" -> {
+                    // результат execute(String); строки считаются для последнего выполненного запроса
+                    ResultSet resultSet = (ResultSet) delegate(proxy, target, method, args);
+                    return query == null ? resultSet : counted(resultSet, (Statement) proxy);
+                }
+                case "addBatch" -> batchSql = args == null ? batchSql : (String) args[0];
+                case "clearBatch" -> batchSql = null;
+                case "getConnection" -> {
+                    return connection;
+                }
+                default -> {
+                }
+            }
+            return delegate(proxy, target, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            if (args != null && args[0] instanceof String sql) {
+                query = query(sql);
+            } else if (method.getName().endsWith("Batch") && (batchSql != null || query == null)) {
+                query = query(batchSql);
+            }
+            updateCounted = false;
+            long started = System.nanoTime();
+            boolean failed = true;
+            Object result;
+            try {
+                result = delegate(proxy, target, method, args);
+                failed = false;
+            } finally {
+                query.record(System.nanoTime() - started, failed);
+            }
+
+            if (result instanceof ResultSet resultSet) {
+                return counted(resultSet, (Statement) proxy);
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                updateCounted = true;
+                query.addRows(Math.max(0, ((Number) result).longValue()));
+            } else if (result instanceof int[] counts) {
+                for (int count : counts) {
+                    query.addRows(Math.max(0, count));
+                }
+            } else if (result instanceof long[] counts) {
+                for (long count : counts) {
+                    query.addRows(Math.max(0, count));
+                }
+            }
+            return result;
+        }
+
+        private ResultSet counted(ResultSet resultSet, Statement statement) {
+            return resultSet == null ? null : proxy(ResultSet.class, new ResultSetHandler(resultSet, statement, query));
+        }
+    }
+
+    /**
+     * Считает прочитанные строки и при закрытии добавляет их в статистику запроса.
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Statement statement;
+        private final QueryMetrics.Query query;
+        private long rows;
+        private boolean closed;
+
+        ResultSetHandler(ResultSet target, Statement statement, QueryMetrics.Query query) {
+            this.target = target;
+            this.statement = statement;
+            this.query = query;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next" -> {
+                    boolean hasRow = target.next();
+                    if (hasRow) {
+                        rows++;
+                    }
+                    return hasRow;
+                }
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        query.addRows(rows);
+                    }
+                    target.close();
+                    return null;
+                }
+                case "getStatement" -> {
+                    return statement;
+                }
+                default -> {
+                    return delegate(proxy, target, method, args);
+                }
+            }
+        }
+    }
+}
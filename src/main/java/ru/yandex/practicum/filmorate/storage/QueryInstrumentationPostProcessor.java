@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Подключает {@link InstrumentedDataSource}: оборачивает пул соединений и даёт SQL-запросам имена
+ * вызвавших их методов хранилищ с {@link Repository}.
+ */
+@Slf4j
+@Component
+public class QueryInstrumentationPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+    private final ObjectProvider<QueryMetrics> metrics;
+    private final boolean enabled;
+    private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+    public QueryInstrumentationPostProcessor(ObjectProvider<QueryMetrics> metrics,
+                                             @Value("${filmorate.jdbc.stats.enabled:true}") boolean enabled) {
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.advisor = new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(Repository.class, true),
+                (MethodInterceptor) this::nameQueries);
+        setBeforeExistingAdvisors(true);
+        setProxyTargetClass(true);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled) {
+            return bean;
+        }
+        if (bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+            log.info("Включена статистика SQL-запросов для {}", beanName);
+            return new InstrumentedDataSource(dataSource, metrics.getObject());
+        }
+        return super.postProcessAfterInitialization(bean, beanName);
+    }
+
+    private Object nameQueries(MethodInvocation invocation) throws Throwable {
+        String name = names.computeIfAbsent(invocation.getMethod(),
+                method -> invocation.getThis().getClass().getSimpleName() + "." + method.getName());
+        String previous = InstrumentedDataSource.enter(name);
+        try {
+            return invocation.proceed();
+        } finally {
+            InstrumentedDataSource.exit(previous);
+        }
+    }
+}
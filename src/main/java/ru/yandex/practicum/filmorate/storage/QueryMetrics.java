@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.QueryStats;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика SQL-запросов по логическим именам вида {@code FilmDbStorage.getTopFilms}: число вызовов,
+ * ошибок, строк и гистограмма времени выполнения в микросекундах. Запись в гистограмму идёт через
+ * {@link Recorder} без блокировок, накопленные значения собираются только при чтении статистики.
+ */
+@Slf4j
+@Component
+public class QueryMetrics {
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final ConcurrentMap<String, Query> queries = new ConcurrentHashMap<>();
+    private final int logTop;
+
+    public QueryMetrics(@Value("${filmorate.jdbc.stats.log-top:10}") int logTop) {
+        this.logTop = logTop;
+    }
+
+    public Query get(String name) {
+        Query query = queries.get(name);
+        return query != null ? query : queries.computeIfAbsent(name, Query::new);
+    }
+
+    /**
+     * Накопленная статистика с момента запуска или сброса, самые затратные по суммарному времени запросы первыми.
+     */
+    public List<QueryStats> getStats() {
+        return queries.values().stream()
+                .map(Query::total)
+                .sorted(Comparator.comparingDouble(QueryStats::getTotalMillis).reversed())
+                .toList();
+    }
+
+    public void reset() {
+        queries.clear();
+        log.info("Статистика SQL-запросов сброшена");
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.jdbc.stats.log-interval-ms:60000}",
+            initialDelayString = "${filmorate.jdbc.stats.log-interval-ms:60000}")
+    public void logSummary() {
+        List<QueryStats> interval = queries.values().stream()
+                .map(Query::sinceLastLog)
+                .filter(stats -> stats.getCalls() > 0)
+                .sorted(Comparator.comparingDouble(QueryStats::getTotalMillis).reversed())
+                .toList();
+        if (interval.isEmpty()) {
+            return;
+        }
+        log.info("SQL-запросы за интервал, самые затратные {} из {}:", Math.min(logTop, interval.size()),
+                interval.size());
+        interval.stream().limit(logTop).forEach(stats -> log.info(
+                "  {}: вызовов {}, ошибок {}, строк {}, всего {} мс, p50 {} мс, p95 {} мс, p99 {} мс, max {} мс",
+                stats.getQuery(), stats.getCalls(), stats.getErrors(), stats.getRows(),
+                format(stats.getTotalMillis()), format(stats.getP50Millis()), format(stats.getP95Millis()),
+                format(stats.getP99Millis()), format(stats.getMaxMillis())));
+    }
+
+    private static String format(double millis) {
+        return String.format("%.2f", millis);
+    }
+
+    public static final class Query {
+        private final String name;
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        private final Histogram sinceLastLog = new Histogram(SIGNIFICANT_DIGITS);
+        private Histogram interval;
+        private long loggedRows;
+        private long loggedErrors;
+
+        private Query(String name) {
+            this.name = name;
+        }
+
+        public void record(long nanos, boolean failed) {
+            recorder.recordValue(Math.max(1, nanos / 1000));
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        public void addRows(long count) {
+            rows.add(count);
+        }
+
+        private synchronized QueryStats total() {
+            drain();
+            return toStats(total, rows.sum(), errors.sum());
+        }
+
+        private synchronized QueryStats sinceLastLog() {
+            drain();
+            long rowsNow = rows.sum();
+            long errorsNow = errors.sum();
+            QueryStats stats = toStats(sinceLastLog, rowsNow - loggedRows, errorsNow - loggedErrors);
+            sinceLastLog.reset();
+            loggedRows = rowsNow;
+            loggedErrors = errorsNow;
+            return stats;
+        }
+
+        private void drain() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            sinceLastLog.add(interval);
+        }
+
+        private QueryStats toStats(Histogram histogram, long rows, long errors) {
+            long calls = histogram.getTotalCount();
+            return QueryStats.builder()
+                    .query(name)
+                    .calls(calls)
+                    .errors(errors)
+                    .rows(rows)
+                    .totalMillis(calls == 0 ? 0 : histogram.getMean() * calls / 1000)
+                    .meanMillis(calls == 0 ? 0 : histogram.getMean() / 1000)
+                    .p50Millis(histogram.getValueAtPercentile(50) / 1000.0)
+                    .p95Millis(histogram.getValueAtPercentile(95) / 1000.0)
+                    .p99Millis(histogram.getValueAtPercentile(99) / 1000.0)
+                    .maxMillis(histogram.getMaxValue() / 1000.0)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+/**
+ * Справочники жанров, рейтингов MPA и режиссёров, по которым фильмы получают названия без JOIN
+ * и проходят проверку существующих id без обращения к БД. Каждый фильм и каждый ответ получают
+ * свои экземпляры жанров, рейтингов и режиссёров.
+ */
+@Slf4j
+@Component
+public class ReferenceDictionaries {
+    private final DictionarySnapshot<Long, Genre> genres;
+    private final DictionarySnapshot<Long, Mpa> mpa;
+    private final DictionarySnapshot<Integer, Director> directors;
+
+    public ReferenceDictionaries(JdbcTemplate jdbcTemplate) {
+        genres = new DictionarySnapshot<>("genres",
+                () -> jdbcTemplate.query("SELECT genre_id, name FROM genres ORDER BY genre_id;",
+                        (rs, rowNum) -> new Genre(rs.getLong("genre_id"), rs.getString("name"))),
+                Genre::getId, genre -> new Genre(genre.getId(), genre.getName()));
+        mpa = new DictionarySnapshot<>("mpa_rating",
+                () -> jdbcTemplate.query("SELECT rating_id, name FROM mpa_rating ORDER BY rating_id;",
+                        (rs, rowNum) -> new Mpa(rs.getLong("rating_id"), rs.getString("name"))),
+                Mpa::getId, mpa -> new Mpa(mpa.getId(), mpa.getName()));
+        directors = new DictionarySnapshot<>("directors",
+                () -> jdbcTemplate.query("SELECT director_id, name FROM directors ORDER BY director_id;",
+                        (rs, rowNum) -> new Director(rs.getInt("director_id"), rs.getString("name"))),
+                Director::getId, director -> new Director(director.getId(), director.getName()));
+    }
+
+    public DictionarySnapshot<Long, Genre> genres() {
+        return genres;
+    }
+
+    public DictionarySnapshot<Long, Mpa> mpa() {
+        return mpa;
+    }
+
+    public DictionarySnapshot<Integer, Director> directors() {
+        return directors;
+    }
+
+    @EventListener({ApplicationReadyEvent.class, DataReloadedEvent.class})
+    public void loadAll() {
+        genres.refresh();
+        mpa.refresh();
+        directors.refresh();
+        log.info("Справочники жанров, рейтингов и режиссёров загружены");
+    }
+}
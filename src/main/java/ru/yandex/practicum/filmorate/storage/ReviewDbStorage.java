@@ -1,13 +1,11 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Review;
 
 import java.sql.PreparedStatement;
@@ -20,7 +18,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ReviewDbStorage implements ReviewStorage {
     private final JdbcTemplate jdbcTemplate;
-    private final NamedParameterJdbcOperations jdbc;
+    private final ExistenceIndex existenceIndex;
 
     private Review mapRowToReview(ResultSet rs, int rowNum) throws SQLException {
         return Review.builder()
@@ -47,20 +45,30 @@ public class ReviewDbStorage implements ReviewStorage {
     }
 
     @Override
-    public List<Review> getAll() {
-        final String GET_ALL = """
-                    SELECT review_id, content, is_positive, user_id, film_id, useful FROM reviews
-                    """;
-        return jdbcTemplate.query(GET_ALL, this::mapRowToReview);
-    }
-
-    @Override
-    public List<Review> getByFilmId(Long filmId) {
-        final String GET_BY_FILM_ID = """
-                    SELECT review_id, content, is_positive, user_id, film_id, useful
-                    FROM reviews WHERE film_id = ?
-                    """;
-        return jdbcTemplate.query(GET_BY_FILM_ID, this::mapRowToReview, filmId);
+    public List<Review> findTop(Long filmId, Integer afterUseful, Long afterId, int limit) {
+        // порядок совпадает с индексом reviews_film_useful или reviews_useful, поэтому сортировки нет;
+        // курсор — последний отзыв предыдущей страницы в порядке (useful DESC, review_id), условие useful <= ?
+        // задаёт начало диапазона индекса, остальное отсекается по ходу чтения
+        final String FIND_TOP_QUERY = "SELECT review_id, content, is_positive, user_id, film_id, useful " +
+                "FROM reviews ORDER BY useful DESC, review_id LIMIT ?";
+        final String FIND_TOP_AFTER_QUERY = "SELECT review_id, content, is_positive, user_id, film_id, useful " +
+                "FROM reviews WHERE useful <= ? AND (useful < ? OR review_id > ?) " +
+                "ORDER BY useful DESC, review_id LIMIT ?";
+        final String FIND_TOP_BY_FILM_QUERY = "SELECT review_id, content, is_positive, user_id, film_id, useful " +
+                "FROM reviews WHERE film_id = ? ORDER BY film_id, useful DESC, review_id LIMIT ?";
+        final String FIND_TOP_BY_FILM_AFTER_QUERY = "SELECT review_id, content, is_positive, user_id, film_id, " +
+                "useful FROM reviews WHERE film_id = ? AND useful <= ? AND (useful < ? OR review_id > ?) " +
+                "ORDER BY film_id, useful DESC, review_id LIMIT ?";
+        if (filmId == null) {
+            return afterId == null
+                    ? jdbcTemplate.query(FIND_TOP_QUERY, this::mapRowToReview, limit)
+                    : jdbcTemplate.query(FIND_TOP_AFTER_QUERY, this::mapRowToReview,
+                    afterUseful, afterUseful, afterId, limit);
+        }
+        return afterId == null
+                ? jdbcTemplate.query(FIND_TOP_BY_FILM_QUERY, this::mapRowToReview, filmId, limit)
+                : jdbcTemplate.query(FIND_TOP_BY_FILM_AFTER_QUERY, this::mapRowToReview,
+                filmId, afterUseful, afterUseful, afterId, limit);
     }
 
     @Override
@@ -73,17 +81,14 @@ public class ReviewDbStorage implements ReviewStorage {
 
     @Override
     public boolean isReviewExist(Long id) {
-        String sqlQuery = "SELECT COUNT(*) FROM reviews WHERE review_id = :review_id;";
-
-        Long count = jdbc.queryForObject(sqlQuery, new MapSqlParameterSource("review_id", id), Long.class);
-
-        return count != null && count == 1;
+        return existenceIndex.reviews().contains(id);
     }
 
     @Override
     public void delete(Long id) {
         final String DELETE_QUERY = "DELETE FROM reviews WHERE review_id=?";
         jdbcTemplate.update(DELETE_QUERY, id);
+        existenceIndex.reviews().remove(id);
     }
 
     @Override
@@ -102,48 +107,39 @@ public class ReviewDbStorage implements ReviewStorage {
 
         Long id = keyHolder.getKey().longValue();
         review.setReviewId(id);
+        existenceIndex.reviews().add(id);
 
         return review;
     }
 
     @Override
-    public boolean getUserRating(Long reviewId, Long userId) {
-        final String FIND_RATE_QUERY = "SELECT rating FROM review_ratings WHERE review_id=? AND user_id=?";
-        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(FIND_RATE_QUERY, Boolean.class, reviewId, userId));
+    @Transactional
+    public Boolean rate(Long reviewId, Long userId, boolean isLike) {
+        // прежняя оценка возвращается из той же команды, что ставит новую
+        final String RATE_QUERY = "SELECT rating FROM OLD TABLE (MERGE INTO review_ratings (user_id, review_id, rating) " +
+                "KEY (user_id, review_id) VALUES (?, ?, ?))";
+        // параллельная оценка того же пользователя ждёт блокировку ключа и видит строку, вставленную первой
+        List<Boolean> old = jdbcTemplate.queryForList(RATE_QUERY, Boolean.class, userId, reviewId, isLike);
+        Boolean previous = old.isEmpty() ? null : old.getFirst();
+        if (previous == null || previous != isLike) {
+            addUseful(reviewId, (isLike ? 1 : -1) * (previous == null ? 1 : 2));
+        }
+        return previous;
     }
 
     @Override
-    public boolean hasUserRatedTheReview(Long reviewId, Long userId) {
-        final String FIND_RATE_QUERY = "SELECT id FROM review_ratings WHERE review_id=? AND user_id=?";
-        try {
-            jdbcTemplate.queryForObject(FIND_RATE_QUERY, Integer.class, reviewId, userId);
-        } catch (EmptyResultDataAccessException ex) {
+    @Transactional
+    public boolean deleteRating(Long reviewId, Long userId, boolean isLike) {
+        final String DELETE_QUERY = "DELETE FROM review_ratings WHERE review_id=? AND user_id=? AND rating=?";
+        if (jdbcTemplate.update(DELETE_QUERY, reviewId, userId, isLike) == 0) {
             return false;
         }
+        addUseful(reviewId, isLike ? -1 : 1);
         return true;
     }
 
-    @Override
-    public void deleteRating(Long reviewId, Long userId) {
-        final String DELETE_QUERY = "DELETE FROM review_ratings WHERE review_id=? AND user_id=?";
-        jdbcTemplate.update(DELETE_QUERY, reviewId, userId);
-    }
-
-    @Override
-    public void addLike(Long reviewId, Long userId) {
-        final String ADD_LIKE_QUERY = "INSERT INTO review_ratings (user_id, review_id, rating) VALUES (?, ?, TRUE)";
-        jdbcTemplate.update(ADD_LIKE_QUERY, userId, reviewId);
-    }
-
-    @Override
-    public void addDislike(Long reviewId, Long userId) {
-        final String ADD_DISLIKE_QUERY = "INSERT INTO review_ratings (user_id, review_id, rating) VALUES (?, ?, FALSE)";
-        jdbcTemplate.update(ADD_DISLIKE_QUERY, userId, reviewId);
-    }
-
-    @Override
-    public void updateRating(Review review) {
-        final String UPDATE_RATING_QUERY = "UPDATE reviews SET useful=? WHERE review_id=?";
-        jdbcTemplate.update(UPDATE_RATING_QUERY, review.getUseful(), review.getReviewId());
+    private void addUseful(Long reviewId, int delta) {
+        final String UPDATE_USEFUL_QUERY = "UPDATE reviews SET useful = useful + ? WHERE review_id=?";
+        jdbcTemplate.update(UPDATE_USEFUL_QUERY, delta, reviewId);
     }
 }
@@ -13,21 +13,24 @@ public interface ReviewStorage {
 
     Review findById(Long id);
 
-    List<Review> getByFilmId(Long filmId);
-
-    List<Review> getAll();
-
-    boolean hasUserRatedTheReview(Long reviewId, Long userId);
-
-    boolean getUserRating(Long reviewId, Long userId);
-
-    void addLike(Long reviewId, Long userId);
-
-    void addDislike(Long reviewId, Long userId);
-
-    void deleteRating(Long reviewId, Long userId);
-
-    void updateRating(Review review);
+    /**
+     * Самые полезные отзывы (всех фильмов, если filmId не указан) в порядке useful DESC, review_id.
+     * Если указан afterId, выдача начинается после отзыва с полезностью afterUseful и id afterId.
+     */
+    List<Review> findTop(Long filmId, Integer afterUseful, Long afterId, int limit);
+
+    /**
+     * Ставит пользователю оценку отзыва и меняет его полезность в одной транзакции.
+     *
+     * @return прежняя оценка пользователя или null, если её не было; если прежняя оценка
+     * совпадает с новой, ничего не меняется
+     */
+    Boolean rate(Long reviewId, Long userId, boolean isLike);
+
+    /**
+     * Удаляет оценку пользователя, если она совпадает с {@code isLike}, и возвращает, была ли она удалена.
+     */
+    boolean deleteRating(Long reviewId, Long userId, boolean isLike);
 
     boolean isReviewExist(Long id);
 }
@@ -7,6 +7,9 @@ import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 
@@ -22,6 +25,11 @@ public class UserDbStorage implements UserStorage {
     private final NamedParameterJdbcOperations jdbc;
     private final JdbcTemplate jdbcTemplate;
     private final FilmStorage filmStorage;
+    private final FilmCache filmCache;
+    private final ExistenceIndex existenceIndex;
+    private final FeedCache feedCache;
+    private final FeedWriter feedWriter;
+    private final BulkFetcher bulkFetcher;
 
     private User mapRowToUser(ResultSet resultSet, int rowNum) throws SQLException {
         return User.builder()
@@ -40,6 +48,7 @@ public class UserDbStorage implements UserStorage {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
         jdbc.update(sqlQuery, new MapSqlParameterSource(user.toMap()), keyHolder);
         user.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        existenceIndex.users().add(user.getId());
         return user;
     }
 
@@ -49,6 +58,18 @@ public class UserDbStorage implements UserStorage {
         return jdbc.queryForObject(sqlQuery, new MapSqlParameterSource("user_id", userId), this::mapRowToUser);
     }
 
+    @Override
+    public List<User> findByIds(List<Long> userIds) {
+        String sqlQuery = "SELECT * FROM users WHERE user_id = ANY(:user_ids);";
+        Map<Long, User> users = new HashMap<>();
+        bulkFetcher.fetch(sqlQuery, "user_ids", userIds, this::mapRowToUser)
+                .forEach(user -> users.put(user.getId(), user));
+        return userIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     @Override
     public Collection<User> getUsers() {
         String sqlQuery = "SELECT * FROM users;";
@@ -64,17 +85,45 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional
     public void delete(Long userId) {
         deleteRelated(Optional.of(userId));
         String sqlQuery = "DELETE FROM users WHERE user_id = :user_id;";
         jdbc.update(sqlQuery, new MapSqlParameterSource("user_id", userId));
+        filmCache.evictAll();
+        existenceIndex.users().remove(userId);
+        feedCache.evict(userId);
+        afterCommit(() -> feedWriter.discard(userId));
+        existenceIndex.reviews().invalidate();
     }
 
     @Override
+    @Transactional
     public void deleteAll() {
         deleteRelated(Optional.empty());
         String sql = "DELETE FROM users";
         jdbcTemplate.update(sql);
+        filmCache.evictAll();
+        existenceIndex.users().invalidate();
+        feedCache.evictAll();
+        afterCommit(feedWriter::discardAll);
+        existenceIndex.reviews().invalidate();
+    }
+
+    /**
+     * Неоткатываемое действие с данными в памяти выполняется только после коммита удаления.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private void deleteRelated(Optional<Long> userId) {
@@ -82,12 +131,17 @@ public class UserDbStorage implements UserStorage {
         final String DELETE_LIKE_BY_ID = "DELETE FROM likes WHERE user_id = :user_id;";
         final String DELETE_ALL_LIKES = "DELETE FROM likes";
         final String DELETE_ALL_FRIENDS_BY_USER_ID = "DELETE FROM friendship WHERE user_id = :user_id;";
+        final String DECREMENT_LIKES_COUNT = "UPDATE films SET likes_count = likes_count - 1 " +
+                "WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = :user_id);";
+        final String RESET_LIKES_COUNT = "UPDATE films SET likes_count = 0";
 
         if (userId.isPresent()) {
             MapSqlParameterSource param = new MapSqlParameterSource("user_id", userId.get());
+            jdbc.update(DECREMENT_LIKES_COUNT, param);
             jdbc.update(DELETE_LIKE_BY_ID, param);
             jdbc.update(DELETE_ALL_FRIENDS_BY_USER_ID, param);
         } else {
+            jdbcTemplate.update(RESET_LIKES_COUNT);
             jdbcTemplate.update(DELETE_ALL_LIKES);
             jdbcTemplate.update(DELETE_ALL_FRIENDS);
         }
@@ -124,6 +178,25 @@ public class UserDbStorage implements UserStorage {
         return jdbc.query(sqlQuery, params, this::mapRowToUser);
     }
 
+    @Override
+    public Map<Long, long[]> getFriendIdsByUser() {
+        String sqlQuery = """
+                SELECT user_id, ARRAY_AGG(friend_id ORDER BY friend_id) AS friend_ids
+                FROM friendship
+                GROUP BY user_id
+                """;
+        Map<Long, long[]> friends = new HashMap<>();
+        jdbcTemplate.query(sqlQuery, rs -> {
+            Object[] friendIds = (Object[]) rs.getArray("friend_ids").getArray();
+            long[] sorted = new long[friendIds.length];
+            for (int i = 0; i < friendIds.length; i++) {
+                sorted[i] = ((Number) friendIds[i]).longValue();
+            }
+            friends.put(rs.getLong("user_id"), sorted);
+        });
+        return friends;
+    }
+
     @Override
     public void deleteFriend(Long userId, Long friendId) {
         String sqlQuery = "DELETE FROM friendship WHERE user_id = :user_id AND friend_id = :friend_id;";
@@ -144,9 +217,7 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public boolean isUserExists(Long userId) {
-        String sqlQuery = "SELECT COUNT(*) FROM users WHERE user_id = :user_id;";
-
-        return 1 == jdbc.queryForObject(sqlQuery, new MapSqlParameterSource("user_id", userId), Integer.class);
+        return existenceIndex.users().contains(userId);
     }
 
     public List<User> findSimilarUsers(Long userId) {
@@ -5,6 +5,7 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface UserStorage {
     User create(User user);
@@ -15,6 +16,8 @@ public interface UserStorage {
 
     User getUserById(Long userId);
 
+    List<User> findByIds(List<Long> userIds);
+
     void delete(Long userId);
 
     void deleteAll();
@@ -25,6 +28,8 @@ public interface UserStorage {
 
     Collection<User> getCommonFriends(Long firstUserId, Long secondUserId);
 
+    Map<Long, long[]> getFriendIdsByUser();
+
     void deleteFriend(Long userId, Long friendId);
 
     boolean isUserExists(Long userId);
@@ -17,7 +17,7 @@ public class FilmSorter {
 
     public FilmSorter() {
         comparatorBySortType.put(SortType.YEAR, Comparator.comparing(Film::getReleaseDate));
-        comparatorBySortType.put(SortType.LIKES, Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed());
+        comparatorBySortType.put(SortType.LIKES, Comparator.comparingInt((Film film) -> film.getLikes() == null ? 0 : film.getLikes().size()).reversed());
     }
 
     public Comparator<Film> getComparator(String sortType) {
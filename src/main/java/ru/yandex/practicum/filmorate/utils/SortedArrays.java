@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными по возрастанию массивами long без повторов.
+ * Методы, меняющие множество, возвращают новый массив и не трогают исходный.
+ */
+public final class SortedArrays {
+    private static final long[] EMPTY = new long[0];
+
+    private SortedArrays() {
+    }
+
+    public static long[] empty() {
+        return EMPTY;
+    }
+
+    public static boolean contains(long[] values, long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public static long[] insert(long[] values, long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return values;
+        }
+        int position = -index - 1;
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(values, position, result, position + 1, values.length - position);
+        return result;
+    }
+
+    public static long[] remove(long[] values, long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return EMPTY;
+        }
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+        return result;
+    }
+
+    public static int intersectionSize(long[] first, long[] second) {
+        if (first.length > second.length) {
+            return intersectionSize(second, first);
+        }
+        if (first.length * 16L < second.length) {
+            // маленький массив выгоднее искать бинарным поиском, чем сливать с большим
+            int count = 0;
+            for (long value : first) {
+                if (contains(second, value)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    public static long[] intersection(long[] first, long[] second) {
+        if (first.length > second.length) {
+            return intersection(second, first);
+        }
+        long[] result = new long[first.length];
+        int size = 0;
+        if (first.length * 16L < second.length) {
+            // галопирующий поиск: следующий элемент ищется от последней найденной позиции
+            int from = 0;
+            for (long value : first) {
+                int index = gallop(second, from, value);
+                if (index < second.length && second[index] == value) {
+                    result[size++] = value;
+                    index++;
+                }
+                from = index;
+            }
+            return size == result.length ? result : Arrays.copyOf(result, size);
+        }
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static int gallop(long[] values, int from, long value) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < values.length && values[high] < value) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        int index = Arrays.binarySearch(values, low, Math.min(high + 1, values.length), value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    public static long[] difference(long[] first, long[] second) {
+        long[] result = new long[first.length];
+        int size = 0;
+        int j = 0;
+        for (long value : first) {
+            while (j < second.length && second[j] < value) {
+                j++;
+            }
+            if (j >= second.length || second[j] != value) {
+                result[size++] = value;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+}
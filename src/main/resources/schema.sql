@@ -32,7 +32,8 @@ CREATE TABLE IF NOT EXISTS films (
   description varchar(200) NOT NULL,
   release_date date NOT NULL,
   duration int NOT NULL,
-  rating_id int REFERENCES mpa_rating (rating_id) ON DELETE RESTRICT
+  rating_id int REFERENCES mpa_rating (rating_id) ON DELETE RESTRICT,
+  likes_count int NOT NULL DEFAULT 0
 );
 
 CREATE TABLE IF NOT EXISTS film_directors (
@@ -74,7 +75,7 @@ CREATE TABLE IF NOT EXISTS reviews (
   is_positive BOOLEAN NOT NULL,
   user_id BIGINT REFERENCES users(user_id) ON DELETE CASCADE,
   film_id BIGINT REFERENCES films(film_id) ON DELETE CASCADE,
-  useful INTEGER
+  useful INTEGER NOT NULL DEFAULT 0
 );
 
 CREATE TABLE IF NOT EXISTS review_ratings (
@@ -95,8 +96,16 @@ CREATE TABLE IF NOT EXISTS user_event (
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE
 );
 
+CREATE INDEX IF NOT EXISTS user_event_user ON user_event (user_id, event_id DESC);
+
 CREATE INDEX IF NOT EXISTS friendship_reverse ON friendship (friend_id, user_id);
 
 CREATE INDEX IF NOT EXISTS likes_reverse ON likes (film_id, user_id);
 
+CREATE INDEX IF NOT EXISTS reviews_film_useful ON reviews (film_id, useful DESC, review_id);
+
+CREATE INDEX IF NOT EXISTS reviews_useful ON reviews (useful DESC, review_id);
+
+CREATE INDEX IF NOT EXISTS films_likes_count ON films (likes_count DESC, film_id);
+
 COMMIT;
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Тестовые данные, общие для тестов сервисов и хранилищ.
+ */
+public final class TestData {
+    private TestData() {
+    }
+
+    public static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -0,0 +1,453 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import ru.yandex.practicum.filmorate.storage.DataReloadedEvent;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * Генератор синтетических данных: пишет пользователей, режиссёров, фильмы с жанрами и режиссёрами, лайки,
+ * дружбу, отзывы, оценки отзывов и события ленты пачками прямо в таблицы schema.sql. Популярность фильмов,
+ * пользователей и отзывов и активность пользователей распределены по закону Ципфа. Одинаковые
+ * {@link DatasetSpec} дают одинаковые данные. Таблицы должны быть пустыми, справочники жанров и рейтингов —
+ * заполнены data.sql.
+ *
+ * <p>Запуск из командной строки, например в файловую базу приложения:
+ * <pre>
+ * mvn -P load test-compile exec:java -Dload.main=ru.yandex.practicum.filmorate.dataset.DatasetGenerator \
+ *     -Dexec.args="--url=jdbc:h2:file:./db/filmorate --init=true --users=1000000 --films=200000 --likes=10000000"
+ * </pre>
+ * Параметры url, user и password по умолчанию берутся из application.properties. После загрузки
+ * приложение запускается с {@code --spring.sql.init.mode=never}, иначе schema.sql удалит данные.
+ */
+@Slf4j
+public class DatasetGenerator {
+    private static final String[] WORDS = {"love", "night", "star", "river", "ghost", "city", "winter", "dream",
+        "storm", "garden", "mirror", "shadow", "summer", "island", "machine", "secret"};
+    private static final int GENRES = 6;
+    private static final int MPA = 5;
+    private static final int BATCH_SIZE = 10_000;
+    private static final LocalDateTime FEED_START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final DatasetSpec spec;
+    private int stamp;
+
+    public DatasetGenerator(DatasetSpec spec) {
+        this.spec = spec;
+    }
+
+    public record Stats(long users, long films, long likes, long friendships, long reviews, long reviewRatings,
+                        long events, long millis) {
+    }
+
+    public static String title(long filmId) {
+        return WORDS[(int) (filmId % WORDS.length)] + " " + WORDS[(int) (filmId / WORDS.length % WORDS.length)]
+                + " " + filmId;
+    }
+
+    /**
+     * Заполняет базу запущенного приложения и сообщает о замене данных, чтобы индексы в памяти перестроились.
+     */
+    public Stats load(ApplicationContext context) throws SQLException {
+        Stats stats = load(context.getBean(DataSource.class));
+        context.publishEvent(new DataReloadedEvent(this));
+        return stats;
+    }
+
+    public Stats load(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return load(connection);
+        }
+    }
+
+    public Stats load(Connection connection) throws SQLException {
+        long started = System.currentTimeMillis();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            Stats stats = generate(connection, started);
+            log.info("Набор данных записан за {} мс: {}", stats.millis(), stats);
+            return stats;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private Stats generate(Connection connection, long started) throws SQLException {
+        int users = spec.getUsers();
+        int films = spec.getFilms();
+        SplittableRandom random = new SplittableRandom(spec.getSeed());
+        Zipf filmPopularity = new Zipf(films, spec.getPopularitySkew(), random.nextLong());
+        Zipf userPopularity = new Zipf(users, spec.getPopularitySkew(), random.nextLong());
+        int[] likesByUser = allocate(spec.getLikes(), users, spec.getActivitySkew(), films / 2, random.nextLong());
+        int[] friendsByUser = allocate(spec.getFriendships(), users, spec.getActivitySkew(), (users - 1) / 2,
+                random.nextLong());
+        long likesSeed = random.nextLong();
+        long friendsSeed = random.nextLong();
+        int[] filmMarks = new int[films];
+        int[] userMarks = new int[users];
+
+        try (Batch events = new Batch(connection, "INSERT INTO user_event "
+                + "(event_id, user_id, event_type, operation, entity_id, timestamp) VALUES (?, ?, ?, ?, ?, ?)", null)) {
+            long[] eventId = {0};
+            EventSink feed = (userId, type, entityId) -> {
+                if (spec.isFeed()) {
+                    eventId[0]++;
+                    events.add(eventId[0], userId, type, "ADD", entityId,
+                            Timestamp.valueOf(FEED_START.plusSeconds(eventId[0])));
+                }
+            };
+
+            long start = System.currentTimeMillis();
+            try (Batch batch = new Batch(connection,
+                    "INSERT INTO users (user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", null)) {
+                for (long id = 1; id <= users; id++) {
+                    batch.add(id, "user" + id + "@example.com", "user" + id, "User " + id,
+                            Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20_000))));
+                }
+            }
+            try (Batch batch = new Batch(connection, "INSERT INTO directors (director_id, name) VALUES (?, ?)",
+                    null)) {
+                for (long id = 1; id <= spec.getDirectors(); id++) {
+                    batch.add(id, "Director " + id);
+                }
+            }
+            logProgress("пользователей и режиссёров", users + spec.getDirectors(), start);
+
+            // число лайков фильма нужно до вставки фильмов, поэтому лайки генерируются дважды с одним seed
+            start = System.currentTimeMillis();
+            int[] likesByFilm = new int[films];
+            for (int user = 0; user < users; user++) {
+                generateLikes(user, likesByUser[user], likesSeed, filmPopularity, filmMarks,
+                        film -> likesByFilm[film]++);
+            }
+            try (Batch filmBatch = new Batch(connection, "INSERT INTO films "
+                    + "(film_id, name, description, release_date, duration, rating_id, likes_count) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)", null);
+                 Batch genreBatch = new Batch(connection,
+                         "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", filmBatch);
+                 Batch directorBatch = new Batch(connection,
+                         "INSERT INTO film_directors (film_id, director_id) VALUES (?, ?)", filmBatch)) {
+                for (int film = 0; film < films; film++) {
+                    long id = film + 1;
+                    filmBatch.add(id, title(id), "Synthetic film " + id,
+                            Date.valueOf(LocalDate.of(1930, 1, 1).plusDays(random.nextInt(34_000))),
+                            60 + random.nextInt(120), 1 + random.nextInt(MPA), likesByFilm[film]);
+                    int firstGenre = random.nextInt(GENRES);
+                    for (int i = 0, count = 1 + random.nextInt(3); i < count; i++) {
+                        genreBatch.add(id, 1 + (firstGenre + i) % GENRES);
+                    }
+                    if (spec.getDirectors() > 0 && random.nextInt(4) > 0) {
+                        directorBatch.add(id, 1 + random.nextInt(spec.getDirectors()));
+                    }
+                }
+            }
+            logProgress("фильмов", films, start);
+
+            start = System.currentTimeMillis();
+            long likes;
+            try (Batch batch = new Batch(connection, "INSERT INTO likes (user_id, film_id) VALUES (?, ?)", null)) {
+                for (int user = 0; user < users; user++) {
+                    long userId = user + 1;
+                    generateLikes(user, likesByUser[user], likesSeed, filmPopularity, filmMarks, film -> {
+                        batch.add(userId, film + 1L);
+                        feed.accept(userId, "LIKE", film + 1L);
+                    });
+                }
+                likes = batch.rows();
+            }
+            logProgress("лайков", likes, start);
+
+            start = System.currentTimeMillis();
+            long friendships;
+            try (Batch batch = new Batch(connection,
+                    "INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)", null)) {
+                for (int user = 0; user < users; user++) {
+                    long userId = user + 1;
+                    SplittableRandom userRandom = new SplittableRandom(friendsSeed + user);
+                    int current = ++stamp;
+                    userMarks[user] = current;
+                    pickDistinct(friendsByUser[user], userRandom, userPopularity, users, userMarks, current,
+                            friend -> {
+                                batch.add(userId, friend + 1L);
+                                feed.accept(userId, "FRIEND", friend + 1L);
+                            });
+                }
+                friendships = batch.rows();
+            }
+            logProgress("дружб", friendships, start);
+
+            start = System.currentTimeMillis();
+            long reviewRatings;
+            int reviews = spec.getReviews();
+            int[] ratingsByReview = allocate(spec.getReviewRatings(), reviews, spec.getPopularitySkew(), users / 2,
+                    random.nextLong());
+            try (Batch reviewBatch = new Batch(connection, "INSERT INTO reviews "
+                    + "(review_id, content, is_positive, user_id, film_id, useful) VALUES (?, ?, ?, ?, ?, ?)", null);
+                 Batch ratingBatch = new Batch(connection,
+                         "INSERT INTO review_ratings (user_id, review_id, rating) VALUES (?, ?, ?)", reviewBatch)) {
+                for (int review = 0; review < reviews; review++) {
+                    long reviewId = review + 1;
+                    long filmId = filmPopularity.sample(random) + 1L;
+                    long authorId = random.nextInt(users) + 1L;
+                    // оценки нужны до вставки отзыва ради useful, а в БД попадают после него
+                    int[] raters = new int[ratingsByReview[review]];
+                    int[] picked = {0};
+                    pickDistinct(raters.length, random, null, users, userMarks, ++stamp,
+                            rater -> raters[picked[0]++] = rater);
+                    boolean[] likesReview = new boolean[raters.length];
+                    int useful = 0;
+                    for (int i = 0; i < raters.length; i++) {
+                        likesReview[i] = random.nextInt(10) < 7;
+                        useful += likesReview[i] ? 1 : -1;
+                    }
+                    reviewBatch.add(reviewId, "Review " + reviewId + " of film " + filmId, random.nextBoolean(),
+                            authorId, filmId, useful);
+                    for (int i = 0; i < raters.length; i++) {
+                        ratingBatch.add(raters[i] + 1L, reviewId, likesReview[i]);
+                    }
+                    feed.accept(authorId, "REVIEW", reviewId);
+                }
+                reviewBatch.flush();
+                reviewRatings = ratingBatch.rows();
+            }
+            logProgress("отзывов и оценок", reviews + reviewRatings, start);
+
+            events.flush();
+            try (Statement statement = connection.createStatement()) {
+                restartIdentity(statement, "users", "user_id", users);
+                restartIdentity(statement, "directors", "director_id", spec.getDirectors());
+                restartIdentity(statement, "films", "film_id", films);
+                restartIdentity(statement, "reviews", "review_id", reviews);
+                restartIdentity(statement, "user_event", "event_id", eventId[0]);
+                statement.execute("ANALYZE");
+            }
+            connection.commit();
+            return new Stats(users, films, likes, friendships, reviews, reviewRatings, eventId[0],
+                    System.currentTimeMillis() - started);
+        }
+    }
+
+    private void generateLikes(int user, int count, long seed, Zipf filmPopularity, int[] marks,
+                               IntConsumer consumer) {
+        pickDistinct(count, new SplittableRandom(seed + user), filmPopularity, marks.length, marks, ++stamp, consumer);
+    }
+
+    /**
+     * Выбирает count различных id из [0, bound): по распределению, а если оно исчерпано частыми
+     * повторами — равномерно. Выбранные id помечаются в marks значением stamp.
+     */
+    private static void pickDistinct(int count, SplittableRandom random, Zipf distribution, int bound, int[] marks,
+                                     int stamp, IntConsumer consumer) {
+        int attempts = 0;
+        for (int chosen = 0; chosen < count; attempts++) {
+            int id = distribution != null && attempts < 8 * count ? distribution.sample(random) : random.nextInt(bound);
+            if (marks[id] != stamp) {
+                marks[id] = stamp;
+                consumer.accept(id);
+                chosen++;
+            }
+        }
+    }
+
+    /**
+     * Делит total между n получателями пропорционально весам Ципфа, не больше cap на получателя.
+     * Ранги получателей перемешаны, чтобы самые активные не совпадали с первыми id.
+     */
+    static int[] allocate(long total, int n, double skew, int cap, long seed) {
+        int[] counts = new int[n];
+        if (n == 0 || cap <= 0) {
+            return counts;
+        }
+        Zipf zipf = new Zipf(n, skew, seed);
+        long remaining = Math.min(total, (long) n * cap);
+        long assigned = 0;
+        for (int rank = 0; rank < n; rank++) {
+            int count = (int) Math.min(cap, (long) (remaining * zipf.weight(rank)));
+            counts[zipf.byRank[rank]] = count;
+            assigned += count;
+        }
+        remaining -= assigned;
+        while (remaining > 0) {
+            for (int rank = 0; rank < n && remaining > 0; rank++) {
+                int id = zipf.byRank[rank];
+                if (counts[id] < cap) {
+                    counts[id]++;
+                    remaining--;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static void restartIdentity(Statement statement, String table, String column, long lastId)
+            throws SQLException {
+        statement.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + (lastId + 1));
+    }
+
+    private static void logProgress(String what, long rows, long started) {
+        log.info("Записано {}: {} за {} мс", what, rows, System.currentTimeMillis() - started);
+    }
+
+    @FunctionalInterface
+    private interface EventSink {
+        void accept(long userId, String type, long entityId);
+    }
+
+    /**
+     * Распределение Ципфа на [0, n): ранг выбирается по накопленным весам 1/k^s, id ранга — из перестановки.
+     */
+    private static final class Zipf {
+        private final double[] cdf;
+        private final int[] byRank;
+
+        Zipf(int n, double skew, long seed) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1 / Math.pow(rank + 1, skew);
+                cdf[rank] = sum;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cdf[rank] /= sum;
+            }
+            byRank = new int[n];
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < n; i++) {
+                int j = random.nextInt(i + 1);
+                byRank[i] = byRank[j];
+                byRank[j] = i;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble());
+            rank = rank < 0 ? -rank - 1 : rank;
+            return byRank[Math.min(rank, byRank.length - 1)];
+        }
+
+        double weight(int rank) {
+            return rank == 0 ? cdf[0] : cdf[rank] - cdf[rank - 1];
+        }
+    }
+
+    /**
+     * Пачка вставок в одну таблицу. Перед отправкой сначала отправляется пачка {@code parent},
+     * на строки которой ссылаются внешние ключи.
+     */
+    private static final class Batch implements AutoCloseable {
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final Batch parent;
+        private int size;
+        private long rows;
+
+        Batch(Connection connection, String sql, Batch parent) throws SQLException {
+            this.connection = connection;
+            this.statement = connection.prepareStatement(sql);
+            this.parent = parent;
+        }
+
+        void add(Object... values) {
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    statement.setObject(i + 1, values[i]);
+                }
+                statement.addBatch();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Не удалось добавить строку в пачку", e);
+            }
+            size++;
+            rows++;
+            if (size >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        long rows() {
+            return rows;
+        }
+
+        void flush() {
+            if (parent != null) {
+                parent.flush();
+            }
+            if (size == 0) {
+                return;
+            }
+            try {
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Не удалось записать пачку", e);
+            }
+            size = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            flush();
+            statement.close();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        DatasetSpec.DatasetSpecBuilder builder = DatasetSpec.builder();
+        // по умолчанию — та же БД и те же учётные данные, что у приложения
+        Properties application = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+        String url = application.getProperty("spring.datasource.url");
+        String user = application.getProperty("spring.datasource.username");
+        String password = application.getProperty("spring.datasource.password");
+        boolean init = false;
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Ожидается --параметр=значение: " + arg);
+            }
+            String value = parts[1];
+            switch (parts[0]) {
+                case "url" -> url = value;
+                case "user" -> user = value;
+                case "password" -> password = value;
+                case "init" -> init = Boolean.parseBoolean(value);
+                case "users" -> builder.users(Integer.parseInt(value));
+                case "films" -> builder.films(Integer.parseInt(value));
+                case "directors" -> builder.directors(Integer.parseInt(value));
+                case "likes" -> builder.likes(Long.parseLong(value));
+                case "friendships" -> builder.friendships(Long.parseLong(value));
+                case "reviews" -> builder.reviews(Integer.parseInt(value));
+                case "review-ratings" -> builder.reviewRatings(Long.parseLong(value));
+                case "feed" -> builder.feed(Boolean.parseBoolean(value));
+                case "popularity-skew" -> builder.popularitySkew(Double.parseDouble(value));
+                case "activity-skew" -> builder.activitySkew(Double.parseDouble(value));
+                case "seed" -> builder.seed(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + parts[0]);
+            }
+        }
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            if (init) {
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("data.sql"));
+            }
+            new DatasetGenerator(builder.build()).load(connection);
+        }
+    }
+}
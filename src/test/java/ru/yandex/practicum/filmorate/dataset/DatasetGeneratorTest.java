@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class DatasetGeneratorTest {
+    private static final DatasetSpec SPEC = DatasetSpec.builder()
+            .users(500)
+            .films(300)
+            .directors(20)
+            .likes(6_000)
+            .friendships(2_000)
+            .reviews(400)
+            .reviewRatings(1_500)
+            .build();
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM user_event");
+        jdbcTemplate.update("DELETE FROM films");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM directors");
+    }
+
+    @Test
+    void testGeneratesConsistentDataset() throws Exception {
+        DatasetGenerator.Stats stats = new DatasetGenerator(SPEC).load(dataSource);
+
+        assertEquals(SPEC.getLikes(), stats.likes());
+        assertEquals(SPEC.getLikes(), count("SELECT COUNT(*) FROM likes"));
+        assertEquals(SPEC.getFriendships(), count("SELECT COUNT(*) FROM friendship"));
+        assertEquals(SPEC.getReviewRatings(), count("SELECT COUNT(*) FROM review_ratings"));
+        assertEquals(stats.likes() + stats.friendships() + stats.reviews(), count("SELECT COUNT(*) FROM user_event"));
+        assertEquals(0, count("SELECT COUNT(*) FROM films f WHERE likes_count <> "
+                + "(SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)"));
+        assertEquals(0, count("SELECT COUNT(*) FROM reviews r WHERE useful <> (SELECT "
+                + "COALESCE(SUM(CASE WHEN rating THEN 1 ELSE -1 END), 0) FROM review_ratings rr "
+                + "WHERE rr.review_id = r.review_id)"));
+        assertEquals(0, count("SELECT COUNT(*) FROM friendship WHERE user_id = friend_id"));
+
+        // лайки смещены к популярным фильмам: десятая часть фильмов собирает больше половины лайков
+        List<Integer> likeCounts = jdbcTemplate.queryForList(
+                "SELECT likes_count FROM films ORDER BY likes_count DESC", Integer.class);
+        long top = likeCounts.stream().limit(SPEC.getFilms() / 10).mapToLong(Integer::longValue).sum();
+        assertTrue(top > SPEC.getLikes() / 2, "лайков у самых популярных фильмов: " + top);
+
+        Long nextUserId = jdbcTemplate.queryForObject("SELECT user_id FROM FINAL TABLE (INSERT INTO users "
+                + "(email, login, name, birthday) VALUES ('new@mail.ru', 'new', 'new', '1990-01-01'))", Long.class);
+        assertEquals(SPEC.getUsers() + 1L, nextUserId);
+    }
+
+    @Test
+    void testSameSpecGivesSameData() throws Exception {
+        new DatasetGenerator(SPEC).load(dataSource);
+        long likes = count("SELECT SUM(user_id * 1000 + film_id) FROM likes");
+        long friends = count("SELECT SUM(user_id * 1000 + friend_id) FROM friendship");
+        tearDown();
+
+        new DatasetGenerator(SPEC).load(dataSource);
+        assertEquals(likes, count("SELECT SUM(user_id * 1000 + film_id) FROM likes"));
+        assertEquals(friends, count("SELECT SUM(user_id * 1000 + friend_id) FROM friendship"));
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
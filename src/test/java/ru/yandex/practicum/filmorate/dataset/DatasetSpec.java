@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Размеры синтетического набора данных для {@link DatasetGenerator}. Количества лайков, дружб, отзывов
+ * и оценок — общие на всю базу; их распределение по пользователям, фильмам и отзывам задаётся
+ * показателями закона Ципфа.
+ */
+@Value
+@Builder(toBuilder = true)
+public class DatasetSpec {
+    @Builder.Default
+    int users = 10_000;
+    @Builder.Default
+    int films = 5_000;
+    @Builder.Default
+    int directors = 200;
+    @Builder.Default
+    long likes = 200_000;
+    @Builder.Default
+    long friendships = 100_000;
+    @Builder.Default
+    int reviews = 10_000;
+    @Builder.Default
+    long reviewRatings = 50_000;
+    /**
+     * Писать ли в user_event событие на каждый лайк, дружбу и отзыв.
+     */
+    @Builder.Default
+    boolean feed = true;
+    /**
+     * Показатель Ципфа для популярности фильмов, пользователей как друзей и отзывов для оценок.
+     */
+    @Builder.Default
+    double popularitySkew = 1.0;
+    /**
+     * Показатель Ципфа для активности пользователей: сколько лайков, друзей и оценок приходится на каждого.
+     */
+    @Builder.Default
+    double activitySkew = 0.6;
+    @Builder.Default
+    long seed = 42;
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LikeSetTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testOfSortsAndRemovesDuplicates() {
+        LikeSet likes = LikeSet.of(5, 1, 3, 5, 1);
+
+        assertArrayEquals(new long[]{1, 3, 5}, likes.toArray());
+        assertEquals(3, likes.size());
+        assertEquals(LikeSet.of(1, 3, 5), likes);
+        assertEquals(LikeSet.of(1, 3, 5).hashCode(), likes.hashCode());
+        assertEquals("[1, 3, 5]", likes.toString());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertSame(LikeSet.empty(), LikeSet.of());
+        assertTrue(LikeSet.empty().isEmpty());
+        assertFalse(LikeSet.empty().contains(1));
+        assertEquals(0, LikeSet.empty().stream().count());
+    }
+
+    @Test
+    public void testContains() {
+        LikeSet likes = LikeSet.of(100, -7, 42, Long.MAX_VALUE);
+
+        assertTrue(likes.contains(-7));
+        assertTrue(likes.contains(42));
+        assertTrue(likes.contains(Long.MAX_VALUE));
+        assertFalse(likes.contains(0));
+        assertFalse(likes.contains(43));
+        assertFalse(likes.contains(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testArraysAreNotShared() {
+        long[] userIds = {3, 2, 1};
+        LikeSet likes = LikeSet.of(userIds);
+
+        assertArrayEquals(new long[]{3, 2, 1}, userIds);
+        likes.toArray()[0] = 99;
+        assertArrayEquals(new long[]{1, 2, 3}, likes.toArray());
+    }
+
+    @Test
+    public void testJsonIsArrayOfNumbers() throws Exception {
+        assertEquals("[1,2,3]", mapper.writeValueAsString(LikeSet.of(3, 1, 2)));
+        assertEquals("[]", mapper.writeValueAsString(LikeSet.empty()));
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws Exception {
+        LikeSet likes = LikeSet.of(10, 20, 30);
+
+        assertEquals(likes, mapper.readValue(mapper.writeValueAsString(likes), LikeSet.class));
+        assertEquals(LikeSet.of(1, 2), mapper.readValue("[2, 1, 2]", LikeSet.class));
+        assertSame(LikeSet.empty(), mapper.readValue("[]", LikeSet.class));
+    }
+
+    @Test
+    public void testFilmLikesInJson() throws Exception {
+        mapper.findAndRegisterModules();
+        Film film = Film.builder()
+                .name("Interstellar")
+                .description("Great movie")
+                .releaseDate(LocalDate.of(2014, 11, 7))
+                .duration(169)
+                .likes(LikeSet.of(7, 3))
+                .build();
+
+        String json = mapper.writeValueAsString(film);
+
+        assertTrue(json.contains("\"likes\":[3,7]"), json);
+        assertEquals(film.getLikes(), mapper.readValue(json, Film.class).getLikes());
+    }
+}
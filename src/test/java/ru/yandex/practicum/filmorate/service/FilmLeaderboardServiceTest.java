@@ -0,0 +1,218 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import(ServiceTestConfiguration.class)
+public class FilmLeaderboardServiceTest {
+    private static final long COMEDY = 1L;
+    private static final long DRAMA = 2L;
+
+    private final FilmLeaderboardService leaderboard;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final LikeMatrix likeMatrix;
+    private final JdbcTemplate jdbcTemplate;
+    private Film comedy2000;
+    private Film comedy2010;
+    private Film drama2000;
+    private Film comedyDrama2000;
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        leaderboard.rebuild();
+        likeMatrix.rebuild();
+        comedy2000 = filmService.create(film("Comedy 2000", 2000, COMEDY));
+        comedy2010 = filmService.create(film("Comedy 2010", 2010, COMEDY));
+        drama2000 = filmService.create(film("Drama 2000", 2000, DRAMA));
+        comedyDrama2000 = filmService.create(film("Comedy drama 2000", 2000, COMEDY, DRAMA));
+        users = List.of(userService.create(user("first")), userService.create(user("second")),
+                userService.create(user("third")));
+    }
+
+    @Test
+    void testTopByLikesThenFilmId() {
+        like(comedy2010, 0, 1);
+        like(drama2000, 0, 1);
+        like(comedyDrama2000, 2);
+
+        assertEquals(ids(comedy2010, drama2000, comedyDrama2000, comedy2000), leaderboard.getTopFilmIds(10, null, null));
+        assertEquals(ids(comedy2010, drama2000), leaderboard.getTopFilmIds(2, null, null));
+    }
+
+    @Test
+    void testGenreAndYearBoards() {
+        like(comedy2010, 0, 1, 2);
+        like(comedyDrama2000, 0, 1);
+        like(drama2000, 0);
+
+        assertEquals(ids(comedy2010, comedyDrama2000, comedy2000), leaderboard.getTopFilmIds(10, COMEDY, null));
+        assertEquals(ids(comedyDrama2000, drama2000, comedy2000), leaderboard.getTopFilmIds(10, null, 2000));
+        assertEquals(ids(comedyDrama2000, comedy2000), leaderboard.getTopFilmIds(10, COMEDY, 2000));
+        assertEquals(ids(comedyDrama2000), leaderboard.getTopFilmIds(1, COMEDY, 2000));
+        assertEquals(ids(comedy2010), leaderboard.getTopFilmIds(10, COMEDY, 2010));
+        assertEquals(List.of(), leaderboard.getTopFilmIds(10, DRAMA, 2010));
+        assertEquals(List.of(), leaderboard.getTopFilmIds(10, 3L, null));
+    }
+
+    @Test
+    void testLikesMoveFilmOnEveryBoard() {
+        like(comedyDrama2000, 0);
+        assertEquals(ids(comedyDrama2000, comedy2000), leaderboard.getTopFilmIds(10, COMEDY, 2000));
+
+        like(comedy2000, 0, 1);
+        assertEquals(ids(comedy2000, comedyDrama2000), leaderboard.getTopFilmIds(10, COMEDY, 2000));
+        assertEquals(comedy2000.getId(), leaderboard.getTopFilmIds(1, null, null).getFirst());
+
+        filmService.deleteLike(comedy2000.getId(), users.get(0).getId());
+        filmService.deleteLike(comedy2000.getId(), users.get(1).getId());
+        assertEquals(ids(comedyDrama2000, comedy2000), leaderboard.getTopFilmIds(10, COMEDY, 2000));
+    }
+
+    @Test
+    void testUpdatedFilmChangesBoards() {
+        like(comedy2000, 0);
+        comedy2000.setReleaseDate(LocalDate.of(2010, 6, 1));
+        comedy2000.addGenres(Set.of(new Genre(DRAMA, null)));
+
+        filmService.update(comedy2000);
+
+        assertEquals(ids(comedyDrama2000), leaderboard.getTopFilmIds(10, COMEDY, 2000));
+        assertEquals(ids(comedy2000), leaderboard.getTopFilmIds(10, DRAMA, 2010));
+        assertEquals(ids(comedy2000, comedy2010), leaderboard.getTopFilmIds(10, null, 2010));
+    }
+
+    @Test
+    void testDeletedFilmLeavesBoards() {
+        like(comedyDrama2000, 0);
+
+        filmService.delete(comedyDrama2000.getId());
+
+        assertEquals(ids(comedy2000), leaderboard.getTopFilmIds(10, COMEDY, 2000));
+        assertEquals(ids(drama2000), leaderboard.getTopFilmIds(10, DRAMA, null));
+        assertFalse(leaderboard.getTopFilmIds(10, null, null).contains(comedyDrama2000.getId()));
+    }
+
+    @Test
+    void testUserDeleteAppliesLikeDeltas() {
+        like(comedy2000, 0, 1);
+        like(drama2000, 0, 2);
+        like(comedy2010, 2);
+        // счётчик мимо рейтинга: полная перестройка после удаления пользователя подняла бы фильм наверх
+        jdbcTemplate.update("UPDATE films SET likes_count = 5 WHERE film_id = ?", comedyDrama2000.getId());
+
+        userService.delete(users.get(0).getId());
+
+        assertEquals(ids(comedy2000, comedy2010, drama2000, comedyDrama2000), leaderboard.getTopFilmIds(10, null, null));
+        assertEquals(ids(comedy2000, comedyDrama2000), leaderboard.getTopFilmIds(10, COMEDY, 2000));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testRebuildWaitsForLikesInFlight() throws InterruptedException {
+        try {
+            jdbcTemplate.update("UPDATE films SET likes_count = 3 WHERE film_id = ?", drama2000.getId());
+            leaderboard.rebuild();
+            Thread rebuild = new Thread(leaderboard::rebuild);
+
+            leaderboard.withLikes(() -> {
+                jdbcTemplate.update("UPDATE films SET likes_count = 2 WHERE film_id = ?", comedy2010.getId());
+                rebuild.start();
+                awaitBlocked(rebuild);
+                leaderboard.changeLikes(comedy2010.getId(), 2);
+                return null;
+            });
+            rebuild.join();
+
+            // перестройка прочитала счётчик уже после приращения и не прибавила его второй раз
+            assertEquals(ids(drama2000, comedy2010), leaderboard.getTopFilmIds(2, null, null));
+        } finally {
+            filmService.deleteAll();
+            userService.deleteAll();
+        }
+    }
+
+    @Test
+    void testReadersSeeEveryFilmWhileLikesChange() throws InterruptedException {
+        List<Film> films = List.of(comedy2000, comedy2010, drama2000, comedyDrama2000);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger incomplete = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                if (leaderboard.getTopFilmIds(10, COMEDY, 2000).size() != 2
+                        || leaderboard.getTopFilmIds(10, null, null).size() != films.size()) {
+                    incomplete.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < 20_000; i++) {
+            Film film = films.get(i % films.size());
+            leaderboard.changeLikes(film.getId(), i % 2 == 0 ? 1 : -1);
+        }
+        running.set(false);
+        reader.join();
+
+        assertEquals(0, incomplete.get());
+    }
+
+    private static void awaitBlocked(Thread thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TERMINATED
+                && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void like(Film film, int... userIndexes) {
+        for (int userIndex : userIndexes) {
+            filmService.addLike(film.getId(), users.get(userIndex).getId());
+        }
+    }
+
+    private static List<Long> ids(Film... films) {
+        return Arrays.stream(films).map(Film::getId).toList();
+    }
+
+    private static Film film(String name, int year, long... genreIds) {
+        Film film = Film.builder()
+                .name(name)
+                .description("Test description")
+                .releaseDate(LocalDate.of(year, 1, 1))
+                .duration(100)
+                .mpa(new Mpa(1L, "G"))
+                .build();
+        for (long genreId : genreIds) {
+            film.getGenres().add(new Genre(genreId, null));
+        }
+        return film;
+    }
+}
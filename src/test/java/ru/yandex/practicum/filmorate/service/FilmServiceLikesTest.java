@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.enums.LikeOperationStatus;
+import ru.yandex.practicum.filmorate.enums.Operation;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserEvent;
+import ru.yandex.practicum.filmorate.storage.FeedDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import(ServiceTestConfiguration.class)
+public class FilmServiceLikesTest {
+    private final FilmService filmService;
+    private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+    private final FeedDbStorage feedStorage;
+    private Film first;
+    private Film second;
+    private User user;
+    private User other;
+
+    @BeforeEach
+    void setUp() {
+        first = filmStorage.create(film("First"));
+        second = filmStorage.create(film("Second"));
+        user = userStorage.create(user("user"));
+        other = userStorage.create(user("other"));
+    }
+
+    @Test
+    void testOpposingOperationsAreCoalesced() {
+        List<LikeOperationResult> results = filmService.applyLikes(List.of(
+                add(first, user),
+                remove(first, user),
+                add(first, user)));
+
+        assertEquals(List.of(LikeOperationStatus.COALESCED, LikeOperationStatus.COALESCED,
+                LikeOperationStatus.APPLIED), statuses(results));
+        assertTrue(filmStorage.findById(first.getId()).getLikes().contains(user.getId()));
+        assertEquals(1, likesCount(first));
+    }
+
+    @Test
+    void testLikeThenUnlikeLeavesNoLike() {
+        filmStorage.addLikeByUser(first.getId(), user.getId());
+
+        List<LikeOperationResult> results = filmService.applyLikes(List.of(
+                remove(first, user),
+                add(first, user),
+                remove(first, user)));
+
+        assertEquals(List.of(LikeOperationStatus.COALESCED, LikeOperationStatus.COALESCED,
+                LikeOperationStatus.APPLIED), statuses(results));
+        assertTrue(filmStorage.findById(first.getId()).getLikes().isEmpty());
+        assertEquals(0, likesCount(first));
+    }
+
+    @Test
+    void testStatusesAreReturnedInOperationOrder() {
+        filmStorage.addLikeByUser(second.getId(), other.getId());
+
+        List<LikeOperationResult> results = filmService.applyLikes(List.of(
+                add(second, user),
+                add(first, user),
+                add(first, user),
+                add(second, other),
+                remove(first, other),
+                remove(second, other),
+                new LikeOperation(first.getId(), null, Operation.ADD),
+                new LikeOperation(9999L, user.getId(), Operation.ADD),
+                new LikeOperation(first.getId(), 9999L, Operation.REMOVE),
+                new LikeOperation(first.getId(), user.getId(), Operation.UPDATE)));
+
+        assertEquals(List.of(
+                LikeOperationStatus.APPLIED,
+                LikeOperationStatus.DUPLICATE,
+                LikeOperationStatus.APPLIED,
+                LikeOperationStatus.COALESCED,
+                LikeOperationStatus.UNCHANGED,
+                LikeOperationStatus.APPLIED,
+                LikeOperationStatus.INVALID,
+                LikeOperationStatus.NOT_FOUND,
+                LikeOperationStatus.NOT_FOUND,
+                LikeOperationStatus.INVALID), statuses(results));
+        assertEquals(second.getId(), results.getFirst().getFilmId());
+        assertEquals(user.getId(), results.getFirst().getUserId());
+        assertEquals(1, likesCount(first));
+        assertEquals(1, likesCount(second));
+    }
+
+    @Test
+    void testCoalescedOperationsDoNotGoToFeed() {
+        filmService.applyLikes(List.of(add(first, user), remove(first, user), add(second, user), add(second, user)));
+
+        List<UserEvent> feed = new ArrayList<>(feedStorage.getFeed(user.getId()));
+        assertEquals(List.of(first.getId(), second.getId()), feed.stream().map(UserEvent::getEntityId).toList());
+        assertEquals(List.of(Operation.REMOVE, Operation.ADD), feed.stream().map(UserEvent::getOperation).toList());
+    }
+
+    @Test
+    void testNullOperationIsRejected() {
+        List<LikeOperation> operations = Arrays.asList(add(first, user), null);
+
+        assertThrows(ValidationException.class, () -> filmService.applyLikes(operations));
+        assertEquals(0, likesCount(first));
+    }
+
+    @Test
+    void testLikeDoesNotLoadFilm() {
+        CacheStats before = filmService.getCacheStats();
+
+        filmService.addLike(first.getId(), user.getId());
+        filmService.deleteLike(first.getId(), user.getId());
+
+        CacheStats after = filmService.getCacheStats();
+        assertEquals(before.getHits() + before.getMisses(), after.getHits() + after.getMisses());
+        assertThrows(NotFoundException.class, () -> filmService.addLike(-1L, user.getId()));
+    }
+
+    private int likesCount(Film film) {
+        return filmStorage.findById(film.getId()).getLikes().size();
+    }
+
+    private static List<LikeOperationStatus> statuses(List<LikeOperationResult> results) {
+        return results.stream().map(LikeOperationResult::getStatus).toList();
+    }
+
+    private static LikeOperation add(Film film, User user) {
+        return new LikeOperation(film.getId(), user.getId(), Operation.ADD);
+    }
+
+    private static LikeOperation remove(Film film, User user) {
+        return new LikeOperation(film.getId(), user.getId(), Operation.REMOVE);
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Test description")
+                .releaseDate(LocalDate.parse("1980-05-21"))
+                .duration(100)
+                .mpa(new Mpa(1L, "G"))
+                .build();
+    }
+}
@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.DataReloadedEvent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import(ServiceTestConfiguration.class)
+public class FriendshipGraphTest {
+    private final FriendshipGraph friendshipGraph;
+    private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private User first;
+    private User second;
+    private User third;
+    private User fourth;
+
+    @BeforeEach
+    void setUp() {
+        friendshipGraph.rebuild();
+        first = userService.create(user("first"));
+        second = userService.create(user("second"));
+        third = userService.create(user("third"));
+        fourth = userService.create(user("fourth"));
+    }
+
+    @Test
+    void testFriendshipIsOneWay() {
+        userService.addFriend(first.getId(), second.getId());
+
+        assertArrayEquals(ids(second), friendshipGraph.getFriends(first.getId()));
+        assertArrayEquals(ids(), friendshipGraph.getFriends(second.getId()));
+        assertEquals(List.of(), userService.getFriends(second.getId()));
+
+        userService.addFriend(second.getId(), first.getId());
+
+        assertArrayEquals(ids(second), friendshipGraph.getFriends(first.getId()));
+        assertArrayEquals(ids(first), friendshipGraph.getFriends(second.getId()));
+    }
+
+    @Test
+    void testDeleteFriendKeepsOtherDirection() {
+        userService.addFriend(first.getId(), second.getId());
+        userService.addFriend(second.getId(), first.getId());
+
+        userService.deleteFriend(first.getId(), second.getId());
+
+        assertArrayEquals(ids(), friendshipGraph.getFriends(first.getId()));
+        assertArrayEquals(ids(first), friendshipGraph.getFriends(second.getId()));
+    }
+
+    @Test
+    void testFriendsAreSortedById() {
+        userService.addFriend(first.getId(), fourth.getId());
+        userService.addFriend(first.getId(), second.getId());
+        userService.addFriend(first.getId(), third.getId());
+
+        assertArrayEquals(ids(second, third, fourth), friendshipGraph.getFriends(first.getId()));
+        assertEquals(List.of(second, third, fourth), userService.getFriends(first.getId()));
+    }
+
+    @Test
+    void testCommonFriends() {
+        userService.addFriend(first.getId(), third.getId());
+        userService.addFriend(first.getId(), fourth.getId());
+        userService.addFriend(second.getId(), fourth.getId());
+        userService.addFriend(second.getId(), third.getId());
+        userService.addFriend(third.getId(), fourth.getId());
+
+        assertArrayEquals(ids(third, fourth), friendshipGraph.getCommonFriends(first.getId(), second.getId()));
+        assertArrayEquals(ids(fourth), friendshipGraph.getCommonFriends(first.getId(), third.getId()));
+        assertArrayEquals(ids(), friendshipGraph.getCommonFriends(first.getId(), fourth.getId()));
+        assertEquals(List.of(third, fourth), userService.commonFriends(second.getId(), first.getId()));
+    }
+
+    @Test
+    void testCommonFriendsAreOneWay() {
+        userService.addFriend(first.getId(), third.getId());
+        userService.addFriend(third.getId(), second.getId());
+
+        // третий в друзьях у первого, но второй третьего в друзья не добавлял
+        assertArrayEquals(ids(), friendshipGraph.getCommonFriends(first.getId(), second.getId()));
+    }
+
+    @Test
+    void testRemovedUserLeavesFriendLists() {
+        userService.addFriend(first.getId(), second.getId());
+        userService.addFriend(second.getId(), third.getId());
+        userService.addFriend(third.getId(), second.getId());
+        userService.addFriend(fourth.getId(), third.getId());
+
+        userService.delete(second.getId());
+
+        assertArrayEquals(ids(), friendshipGraph.getFriends(first.getId()));
+        assertArrayEquals(ids(), friendshipGraph.getFriends(second.getId()));
+        assertArrayEquals(ids(), friendshipGraph.getFriends(third.getId()));
+        assertArrayEquals(ids(third), friendshipGraph.getFriends(fourth.getId()));
+    }
+
+    @Test
+    void testReloadOnDataReloadedEvent() {
+        userService.addFriend(first.getId(), second.getId());
+        jdbcTemplate.update("DELETE FROM friendship");
+        jdbcTemplate.update("INSERT INTO friendship (user_id, friend_id) VALUES (?, ?), (?, ?)",
+                third.getId(), first.getId(), third.getId(), fourth.getId());
+
+        eventPublisher.publishEvent(new DataReloadedEvent(this));
+
+        assertTrue(friendshipGraph.isReady());
+        assertArrayEquals(ids(), friendshipGraph.getFriends(first.getId()));
+        assertArrayEquals(ids(first, fourth), friendshipGraph.getFriends(third.getId()));
+    }
+
+    @Test
+    void testRebuildMatchesIncrementalUpdates() {
+        userService.addFriend(first.getId(), second.getId());
+        userService.addFriend(first.getId(), third.getId());
+        userService.addFriend(third.getId(), first.getId());
+        userService.addFriend(fourth.getId(), first.getId());
+        userService.deleteFriend(first.getId(), second.getId());
+        List<User> users = List.of(first, second, third, fourth);
+        Map<Long, List<Long>> before = friendsOf(users);
+
+        friendshipGraph.rebuild();
+
+        assertEquals(before, friendsOf(users));
+    }
+
+    private Map<Long, List<Long>> friendsOf(List<User> users) {
+        return users.stream().collect(Collectors.toMap(User::getId,
+                user -> Arrays.stream(friendshipGraph.getFriends(user.getId())).boxed().toList()));
+    }
+
+    private static long[] ids(User... users) {
+        return Arrays.stream(users).mapToLong(User::getId).toArray();
+    }
+}
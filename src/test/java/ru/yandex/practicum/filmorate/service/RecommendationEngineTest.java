@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecommendationEngineTest {
+    private LikeMatrix likeMatrix;
+
+    @BeforeEach
+    void setUp() {
+        likeMatrix = new LikeMatrix(null);
+    }
+
+    @Test
+    public void testNoLikesGivesNoRecommendations() {
+        like(2, 1, 2);
+
+        assertEquals(List.of(), engine(20, 20).recommend(1L));
+    }
+
+    @Test
+    public void testFilmsRankedBySimilarityOfNeighbors() {
+        like(1, 1, 2, 3);
+        like(2, 1, 2, 3, 4);
+        like(3, 1, 5);
+        like(4, 6);
+
+        // сходство: пользователь 2 — 3/4, пользователь 3 — 1/4, пользователь 4 без общих фильмов
+        assertEquals(List.of(4L, 5L), engine(20, 20).recommend(1L));
+    }
+
+    @Test
+    public void testOnlyTopNeighborsAreUsed() {
+        like(1, 1, 2, 3);
+        like(2, 1, 2, 3, 4);
+        like(3, 1, 5);
+
+        assertEquals(List.of(4L), engine(1, 20).recommend(1L));
+    }
+
+    @Test
+    public void testScoresOfNeighborsAreSummed() {
+        like(1, 1, 2, 3, 4);
+        like(2, 1, 2, 3, 10);
+        like(3, 1, 2, 11);
+        like(4, 3, 4, 11);
+
+        // фильм 10: 3/5; фильм 11: 2/5 + 2/5
+        assertEquals(List.of(11L, 10L), engine(20, 20).recommend(1L));
+    }
+
+    @Test
+    public void testFilmCountAndTieBreakByFilmId() {
+        like(1, 1);
+        like(2, 1, 30, 20, 10);
+
+        assertEquals(List.of(10L, 20L), engine(20, 2).recommend(1L));
+    }
+
+    @Test
+    public void testEqualNeighborsTakenByMoreCommonFilmsThenUserId() {
+        like(1, 1, 2);
+        like(5, 1, 2, 100, 101, 102, 103);
+        like(3, 1, 200);
+        like(4, 2, 300);
+
+        // у всех троих сходство 1/3: первым идёт пользователь 5 с двумя общими фильмами, затем 3 с меньшим id
+        assertEquals(List.of(100L, 101L, 102L, 103L, 200L), engine(2, 20).recommend(1L));
+    }
+
+    @Test
+    public void testParallelRankingIsDeterministic() {
+        like(1, 1);
+        LongStream.rangeClosed(2, 3000).forEach(userId -> like(userId, 1, 1000 + userId));
+
+        assertEquals(List.of(1002L, 1003L, 1004L), engine(3, 20).recommend(1L));
+    }
+
+    private RecommendationEngine engine(int neighbors, int films) {
+        return new RecommendationEngine(likeMatrix, neighbors, films);
+    }
+
+    private void like(long userId, long... filmIds) {
+        for (long filmId : filmIds) {
+            likeMatrix.addLike(filmId, userId);
+        }
+    }
+}
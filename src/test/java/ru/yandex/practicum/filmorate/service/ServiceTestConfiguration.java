@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.storage.StorageTestConfiguration;
+
+/**
+ * Сервисы фильмов и пользователей с их индексами в памяти поверх {@link StorageTestConfiguration}.
+ */
+@TestConfiguration
+@Import({StorageTestConfiguration.class, FilmService.class, UserService.class, FilmLeaderboardService.class,
+        LikeMatrix.class, FriendshipGraph.class})
+public class ServiceTestConfiguration {
+}
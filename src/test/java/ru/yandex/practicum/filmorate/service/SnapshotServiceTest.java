@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.SnapshotStats;
+import ru.yandex.practicum.filmorate.storage.DataReloadedEvent;
+import ru.yandex.practicum.filmorate.storage.DataSnapshot;
+import ru.yandex.practicum.filmorate.storage.FeedCache;
+import ru.yandex.practicum.filmorate.storage.FeedWriter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "filmorate.snapshot.dir=target/test-snapshots")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({SnapshotService.class, DataSnapshot.class, FeedWriter.class, FeedCache.class,
+        SnapshotServiceTest.ReloadListener.class})
+public class SnapshotServiceTest {
+    private final SnapshotService snapshotService;
+    private final ReloadListener reloadListener;
+    private final JdbcTemplate jdbcTemplate;
+
+    static class ReloadListener {
+        final AtomicInteger reloads = new AtomicInteger();
+
+        @EventListener(DataReloadedEvent.class)
+        void onReload() {
+            reloads.incrementAndGet();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) "
+                + "VALUES ('first@mail.ru', 'first', 'first', '1990-01-01')");
+        snapshotService.write("test");
+        jdbcTemplate.update("DELETE FROM users");
+        reloadListener.reloads.set(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void testRestorePublishesDataReloaded() {
+        SnapshotStats stats = snapshotService.restore("test");
+
+        assertEquals(1L, stats.getTables().get("users"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+        assertEquals(1, reloadListener.reloads.get());
+    }
+
+    @Test
+    void testRequestsAreRefusedWhileRestoring() throws InterruptedException {
+        assertTrue(snapshotService.beginRequest());
+        AtomicReference<SnapshotStats> restored = new AtomicReference<>();
+        Thread restore = new Thread(() -> restored.set(snapshotService.restore("test")));
+        restore.start();
+
+        // восстановление ждёт начатый запрос, новые запросы не пускаются
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (restore.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertFalse(snapshotService.beginRequest());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+
+        snapshotService.endRequest();
+        restore.join();
+
+        assertNotNull(restored.get());
+        assertTrue(snapshotService.beginRequest());
+        snapshotService.endRequest();
+    }
+
+    @Test
+    void testMissingSnapshot() {
+        assertThrows(NotFoundException.class, () -> snapshotService.restore("missing"));
+        assertEquals(0, reloadListener.reloads.get());
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.dataset.DatasetSpec;
+import ru.yandex.practicum.filmorate.model.SnapshotStats;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({DataSnapshot.class, FeedWriter.class, FeedCache.class})
+public class DataSnapshotTest {
+    private static final List<String> CHECKSUMS = List.of(
+            "SELECT COUNT(*), SUM(user_id), SUM(LENGTH(email)), SUM(EXTRACT(DAY FROM birthday)) FROM users",
+            "SELECT COUNT(*), SUM(film_id), SUM(LENGTH(name)), SUM(likes_count), SUM(COALESCE(rating_id, 7)) FROM films",
+            "SELECT COUNT(*), SUM(film_id * 10 + genre_id) FROM film_genres",
+            "SELECT COUNT(*), SUM(film_id * 1000 + director_id) FROM film_directors",
+            "SELECT COUNT(*), SUM(user_id * 100000 + film_id) FROM likes",
+            "SELECT COUNT(*), SUM(user_id * 100000 + friend_id) FROM friendship",
+            "SELECT COUNT(*), SUM(review_id), SUM(useful), SUM(CASE WHEN is_positive THEN 1 ELSE 0 END) FROM reviews",
+            "SELECT COUNT(*), SUM(CASE WHEN rating THEN review_id ELSE -review_id END) FROM review_ratings",
+            "SELECT COUNT(*), SUM(event_id), SUM(EXTRACT(EPOCH FROM timestamp)) FROM user_event",
+            "SELECT COUNT(*), SUM(LENGTH(name)) FROM genres",
+            "SELECT LISTAGG(table_name || ' ' || index_type_name, ',') WITHIN GROUP (ORDER BY table_name, "
+                    + "index_type_name) FROM information_schema.indexes WHERE table_schema = 'PUBLIC'");
+
+    private final DataSnapshot dataSnapshot;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM user_event");
+        jdbcTemplate.update("DELETE FROM films");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM directors");
+    }
+
+    @Test
+    void testRestoreGivesSameData() throws Exception {
+        generate();
+        Map<String, Map<String, Object>> expected = checksums();
+        Path file = directory.resolve("test.snap");
+
+        SnapshotStats written = dataSnapshot.write(file);
+        assertEquals(written.getBytes(), file.toFile().length());
+        assertEquals(3_000L, written.getTables().get("likes"));
+
+        tearDown();
+        SnapshotStats restored = dataSnapshot.restore(file);
+
+        assertEquals(written.getTables(), restored.getTables());
+        assertEquals(expected, checksums());
+        Long nextFilmId = jdbcTemplate.queryForObject("SELECT film_id FROM FINAL TABLE (INSERT INTO films "
+                + "(name, description, release_date, duration) VALUES ('new', 'new', '1990-01-01', 90))", Long.class);
+        assertEquals(201L, nextFilmId);
+        // ссылочная целостность после восстановления включена
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("INSERT INTO likes (user_id, film_id) VALUES (1, 100000)"));
+    }
+
+    @Test
+    void testTruncatedSnapshotLeavesDataUntouched() throws Exception {
+        generate();
+        Path file = directory.resolve("test.snap");
+        dataSnapshot.write(file);
+        jdbcTemplate.update("DELETE FROM likes WHERE user_id % 2 = 0");
+        Map<String, Map<String, Object>> expected = checksums();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 100);
+        }
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> dataSnapshot.restore(file));
+        assertTrue(error.getMessage().contains("обрывается"), error.getMessage());
+        assertEquals(expected, checksums());
+    }
+
+    @Test
+    void testCorruptedGroupLeavesDataUntouched() throws Exception {
+        generate();
+        Path file = directory.resolve("test.snap");
+        dataSnapshot.write(file);
+        jdbcTemplate.update("DELETE FROM likes WHERE user_id % 2 = 0");
+        Map<String, Map<String, Object>> expected = checksums();
+
+        // портим байт в последней таблице, которая загружалась бы последней
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(1);
+            long position = channel.size() - 50;
+            channel.read(value, position);
+            value.put(0, (byte) (value.get(0) ^ 0x5A)).rewind();
+            channel.write(value, position);
+        }
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> dataSnapshot.restore(file));
+        assertTrue(error.getMessage().contains("user_event"), error.getMessage());
+        assertEquals(expected, checksums());
+    }
+
+    private void generate() throws SQLException {
+        new DatasetGenerator(DatasetSpec.builder()
+                .users(300)
+                .films(200)
+                .directors(10)
+                .likes(3_000)
+                .friendships(1_000)
+                .reviews(200)
+                .reviewRatings(800)
+                .build()).load(dataSource);
+        jdbcTemplate.update("UPDATE films SET rating_id = NULL WHERE film_id % 10 = 0");
+    }
+
+    private Map<String, Map<String, Object>> checksums() {
+        Map<String, Map<String, Object>> checksums = new LinkedHashMap<>();
+        CHECKSUMS.forEach(sql -> checksums.put(sql, jdbcTemplate.queryForMap(sql)));
+        return checksums;
+    }
+}
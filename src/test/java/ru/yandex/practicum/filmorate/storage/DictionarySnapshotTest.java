@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DictionarySnapshotTest {
+    private final DictionarySnapshot<Long, Genre> genres = new DictionarySnapshot<>("genres",
+            () -> List.of(new Genre(1L, "Комедия"), new Genre(2L, "Драма")),
+            Genre::getId, genre -> new Genre(genre.getId(), genre.getName()));
+
+    @Test
+    public void testGetReturnsCopies() {
+        Genre first = genres.get(1L);
+        first.setName("Changed");
+
+        assertEquals(new Genre(1L, "Комедия"), genres.get(1L));
+        assertNotSame(genres.get(1L), genres.get(1L));
+        assertNull(genres.get(3L));
+        assertNull(genres.get(null));
+    }
+
+    @Test
+    public void testValuesReturnCopies() {
+        genres.values().forEach(genre -> genre.setName("Changed"));
+
+        assertEquals(List.of(new Genre(1L, "Комедия"), new Genre(2L, "Драма")), genres.values());
+    }
+}
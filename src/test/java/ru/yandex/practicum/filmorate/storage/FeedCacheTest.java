@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.enums.EventType;
+import ru.yandex.practicum.filmorate.enums.Operation;
+import ru.yandex.practicum.filmorate.model.UserEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeedCacheTest {
+    private static final long USER_ID = 1L;
+
+    private final FeedCache feedCache = new FeedCache(3, 100, Duration.ofMinutes(1));
+
+    @Test
+    public void testShortFeedIsComplete() {
+        List<Integer> limits = new ArrayList<>();
+
+        FeedCache.Tail tail = feedCache.get(USER_ID, limit -> {
+            limits.add(limit);
+            return events(1, 2);
+        });
+
+        assertEquals(List.of(4), limits);
+        assertEquals(List.of(1L, 2L), eventIds(tail));
+        assertTrue(tail.complete());
+    }
+
+    @Test
+    public void testLongFeedKeepsLastEvents() {
+        FeedCache.Tail tail = feedCache.get(USER_ID, limit -> events(1, 2, 3, 4));
+
+        assertEquals(List.of(2L, 3L, 4L), eventIds(tail));
+        assertFalse(tail.complete());
+    }
+
+    @Test
+    public void testLoaderIsCalledOnlyOnMiss() {
+        AtomicInteger loads = new AtomicInteger();
+        IntFunction<List<UserEvent>> loader = limit -> {
+            loads.incrementAndGet();
+            return events(1);
+        };
+
+        feedCache.get(USER_ID, loader);
+        feedCache.get(USER_ID, loader);
+        assertEquals(1, loads.get());
+
+        feedCache.evict(USER_ID);
+        feedCache.get(USER_ID, loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testAppendWrapsAroundRing() {
+        feedCache.get(USER_ID, limit -> events(1, 2));
+
+        feedCache.append(event(3));
+        assertEquals(List.of(1L, 2L, 3L), eventIds(tail()));
+        assertTrue(tail().complete());
+
+        feedCache.append(event(4));
+        feedCache.append(event(5));
+        assertEquals(List.of(3L, 4L, 5L), eventIds(tail()));
+        assertFalse(tail().complete());
+    }
+
+    @Test
+    public void testAppendKeepsEventIdOrder() {
+        feedCache.get(USER_ID, limit -> events(1, 4));
+
+        feedCache.append(event(2));
+        feedCache.append(event(4));
+        assertEquals(List.of(1L, 2L, 4L), eventIds(tail()));
+
+        feedCache.append(event(3));
+        assertEquals(List.of(2L, 3L, 4L), eventIds(tail()));
+
+        feedCache.append(event(1));
+        assertEquals(List.of(2L, 3L, 4L), eventIds(tail()));
+    }
+
+    @Test
+    public void testAppendWithoutBufferIsIgnored() {
+        feedCache.append(event(7));
+
+        assertEquals(List.of(1L), eventIds(feedCache.get(USER_ID, limit -> events(1))));
+    }
+
+    @Test
+    public void testRemove() {
+        feedCache.get(USER_ID, limit -> events(1, 2));
+        feedCache.append(event(3));
+        feedCache.append(event(4));
+
+        feedCache.remove(event(3));
+        assertEquals(List.of(2L, 4L), eventIds(tail()));
+
+        feedCache.remove(event(9));
+        assertEquals(List.of(2L, 4L), eventIds(tail()));
+
+        feedCache.append(event(5));
+        feedCache.append(event(6));
+        assertEquals(List.of(4L, 5L, 6L), eventIds(tail()));
+    }
+
+    @Test
+    public void testRolledBackAppendEvictsBuffer() {
+        feedCache.get(USER_ID, limit -> events(1));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            feedCache.append(event(2));
+            assertEquals(List.of(1L, 2L), eventIds(tail()));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(List.of(1L), eventIds(feedCache.get(USER_ID, limit -> events(1))));
+    }
+
+    private FeedCache.Tail tail() {
+        return feedCache.get(USER_ID, limit -> fail("Буфер ленты не должен загружаться заново"));
+    }
+
+    private static List<Long> eventIds(FeedCache.Tail tail) {
+        return tail.events().stream().map(UserEvent::getEventId).toList();
+    }
+
+    private static List<UserEvent> events(long... eventIds) {
+        return LongStream.of(eventIds).mapToObj(FeedCacheTest::event).toList();
+    }
+
+    private static UserEvent event(long eventId) {
+        return UserEvent.builder()
+                .eventId(eventId)
+                .userId(USER_ID)
+                .eventType(EventType.LIKE)
+                .operation(Operation.ADD)
+                .entityId(eventId)
+                .timestamp(eventId)
+                .build();
+    }
+}
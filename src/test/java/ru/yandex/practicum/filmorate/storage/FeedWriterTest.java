@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.enums.EventType;
+import ru.yandex.practicum.filmorate.enums.Operation;
+import ru.yandex.practicum.filmorate.model.UserEvent;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Поток записи ленты работает со своими соединениями, поэтому тесты идут без общей транзакции
+ * и чистят таблицы сами. Поток можно остановить на первой пачке, пока не открыт {@code release}.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class FeedWriterTest {
+    private static final long MISSING_USER_ID = 9999L;
+
+    private final NamedParameterJdbcOperations jdbc;
+    private final PlatformTransactionManager transactionManager;
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private FeedCache feedCache;
+    private FeedWriter feedWriter;
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.getJdbcOperations().update("INSERT INTO users (email, login, name, birthday) "
+                + "VALUES ('user@mail.ru', 'user', 'user', '1990-01-01')");
+        userId = jdbc.getJdbcOperations().queryForObject("SELECT MAX(user_id) FROM users", Long.class);
+        feedCache = new FeedCache(100, 100, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (feedWriter != null) {
+            feedWriter.stop();
+        }
+        jdbc.getJdbcOperations().update("DELETE FROM user_event");
+        jdbc.getJdbcOperations().update("DELETE FROM users");
+    }
+
+    @Test
+    void testFullQueueIsWrittenByCallerThread() throws InterruptedException {
+        feedWriter = writer(1, 1, Duration.ofMillis(50));
+        UserEvent first = event(userId);
+        feedWriter.write(first);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        UserEvent queued = event(userId);
+        feedWriter.write(queued);
+
+        UserEvent overflow = event(userId);
+        feedWriter.write(overflow);
+
+        assertEquals(List.of(overflow.getEventId()), storedEventIds());
+        assertEquals(List.of(first, queued), feedWriter.getPending(userId));
+
+        release.countDown();
+        feedWriter.stop();
+
+        assertEquals(List.of(first.getEventId(), queued.getEventId(), overflow.getEventId()), storedEventIds());
+        assertEquals(List.of(), feedWriter.getPending(userId));
+    }
+
+    @Test
+    void testStopWritesQueuedEvents() throws InterruptedException {
+        feedWriter = writer(10, 1, Duration.ofSeconds(1));
+        UserEvent first = event(userId);
+        feedWriter.write(first);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        UserEvent second = event(userId);
+        UserEvent third = event(userId);
+        feedWriter.write(second);
+        feedWriter.write(third);
+        assertEquals(List.of(), storedEventIds());
+
+        release.countDown();
+        feedWriter.stop();
+
+        assertEquals(List.of(first.getEventId(), second.getEventId(), third.getEventId()), storedEventIds());
+        assertEquals(List.of(), feedWriter.getPending(userId));
+
+        UserEvent afterStop = event(userId);
+        feedWriter.write(afterStop);
+
+        assertEquals(4, storedEventIds().size());
+    }
+
+    @Test
+    void testEventsAreWrittenSynchronouslyUntilStarted() {
+        feedWriter = new FeedWriter(jdbc, new TransactionTemplate(transactionManager), feedCache, 10, 10,
+                Duration.ZERO, Duration.ofSeconds(1), false);
+        UserEvent beforeStart = event(userId);
+        feedWriter.write(beforeStart);
+
+        assertFalse(feedWriter.isRunning());
+        assertEquals(List.of(beforeStart.getEventId()), storedEventIds());
+
+        feedWriter.start();
+
+        assertTrue(feedWriter.isRunning());
+    }
+
+    @Test
+    void testPendingEventsAreVisibleInFeed() throws InterruptedException {
+        feedWriter = writer(10, 1, Duration.ofSeconds(1));
+        FeedDbStorage feedStorage = new FeedDbStorage(jdbc, feedCache, feedWriter);
+        feedStorage.addEventToFeed(userId, EventType.LIKE, Operation.ADD, 1L);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        feedStorage.addEventToFeed(userId, EventType.FRIEND, Operation.ADD, 2L);
+        feedCache.evict(userId);
+
+        assertEquals(List.of(), storedEventIds());
+        assertEquals(List.of(1L, 2L), feedStorage.getFeed(userId).stream().map(UserEvent::getEntityId).toList());
+        assertEquals(List.of(2L), feedStorage.getFeed(userId, 1).stream().map(UserEvent::getEntityId).toList());
+
+        release.countDown();
+        feedWriter.stop();
+        feedCache.evict(userId);
+
+        assertEquals(2, storedEventIds().size());
+        assertEquals(List.of(1L, 2L), feedStorage.getFeed(userId).stream().map(UserEvent::getEntityId).toList());
+    }
+
+    @Test
+    void testFailedBatchIsRetriedRowByRow() {
+        feedWriter = writer(10, 100, Duration.ofSeconds(1));
+        FeedDbStorage feedStorage = new FeedDbStorage(jdbc, feedCache, feedWriter);
+        assertEquals(0, feedStorage.getFeed(userId).size());
+        assertEquals(0, feedStorage.getFeed(MISSING_USER_ID).size());
+        UserEvent stored = event(userId);
+        UserEvent ghost = event(MISSING_USER_ID);
+
+        feedStorage.addEventsToFeed(List.of(stored, ghost));
+
+        assertEquals(List.of(stored.getEventId()), storedEventIds());
+        assertEquals(List.of(), feedWriter.getPending(userId));
+        assertEquals(List.of(), feedWriter.getPending(MISSING_USER_ID));
+        assertEquals(List.of(stored), feedStorage.getFeed(userId));
+        assertEquals(List.of(), feedStorage.getFeed(MISSING_USER_ID));
+    }
+
+    private FeedWriter writer(int queueCapacity, int batchSize, Duration offerTimeout) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager) {
+            @Override
+            public void executeWithoutResult(Consumer<TransactionStatus> action) {
+                if (Thread.currentThread().getName().equals("feed-writer") && blocked.getCount() > 0) {
+                    blocked.countDown();
+                    try {
+                        assertTrue(release.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.executeWithoutResult(action);
+            }
+        };
+        FeedWriter writer = new FeedWriter(jdbc, transactionTemplate, feedCache, queueCapacity, batchSize,
+                Duration.ZERO, offerTimeout, false);
+        writer.start();
+        return writer;
+    }
+
+    private UserEvent event(long userId) {
+        return UserEvent.builder()
+                .eventId(feedWriter.nextEventId())
+                .userId(userId)
+                .eventType(EventType.LIKE)
+                .operation(Operation.ADD)
+                .entityId(1L)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private List<Long> storedEventIds() {
+        return jdbc.queryForList("SELECT event_id FROM user_event ORDER BY event_id", new MapSqlParameterSource(),
+                Long.class);
+    }
+}
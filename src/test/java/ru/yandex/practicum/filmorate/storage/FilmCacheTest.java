@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmCacheTest {
+    private final FilmCache filmCache = new FilmCache(100, Duration.ofMinutes(1));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void testGetReturnsEqualCopy() {
+        Film first = filmCache.get(1L, this::load);
+        Film second = filmCache.get(1L, this::load);
+
+        assertEquals(1, loads.get());
+        assertEquals(film(1L), first);
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertNotSame(first.getGenres(), second.getGenres());
+        assertNotSame(first.getDirectors(), second.getDirectors());
+        assertNotSame(first.getMpa(), second.getMpa());
+    }
+
+    @Test
+    public void testChangesDoNotReachCache() {
+        Film film = filmCache.get(1L, this::load);
+        film.setName("Changed");
+        film.getMpa().setName("R");
+        film.getGenres().iterator().next().setName("Драма");
+        film.getGenres().add(new Genre(2L, "Драма"));
+        film.getDirectors().iterator().next().setName("Changed");
+        film.getDirectors().clear();
+        film.setLikes(LikeSet.empty());
+
+        assertEquals(film(1L), filmCache.get(1L, this::load));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testGetAllReturnsCopies() {
+        filmCache.get(1L, this::load);
+
+        Map<Long, Film> films = filmCache.getAll(Set.of(1L, 2L), filmIds -> filmIds.stream()
+                .collect(Collectors.toMap(filmId -> filmId, this::load)));
+        films.get(1L).getGenres().clear();
+        films.get(2L).getGenres().clear();
+
+        assertEquals(2, loads.get());
+        assertEquals(film(1L), filmCache.get(1L, this::load));
+        assertEquals(film(2L), filmCache.get(2L, this::load));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testEvictReloads() {
+        filmCache.get(1L, this::load);
+
+        filmCache.evict(1L);
+        filmCache.get(1L, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    private Film load(Long filmId) {
+        loads.incrementAndGet();
+        return film(filmId);
+    }
+
+    private static Film film(Long filmId) {
+        Film film = Film.builder()
+                .id(filmId)
+                .name("Film " + filmId)
+                .description("Test description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .likes(LikeSet.of(1, 2))
+                .mpa(new Mpa(1L, "G"))
+                .directors(new HashSet<>(Set.of(new Director(1, "Christopher Nolan"))))
+                .build();
+        film.getGenres().add(new Genre(1L, "Комедия"));
+        return film;
+    }
+}
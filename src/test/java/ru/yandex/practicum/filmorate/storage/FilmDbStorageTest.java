@@ -7,17 +7,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.enums.Operation;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @JdbcTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({UserDbStorage.class, GenreDbStorage.class, FilmDbStorage.class, MpaDbStorage.class})
+@Import({UserDbStorage.class, GenreDbStorage.class, FilmDbStorage.class, FilmAssembler.class, FilmCache.class,
+        ExistenceIndex.class, ReferenceDictionaries.class, BulkFetcher.class, FilmSearchIndex.class, FeedCache.class,
+        FeedWriter.class, MpaDbStorage.class})
 public class FilmDbStorageTest {
     private final UserDbStorage userStorage;
     private final FilmDbStorage filmStorage;
@@ -95,4 +103,52 @@ public class FilmDbStorageTest {
 
         assertTrue(filmStorage.isFilmExists(film.getId()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCreateAllFilms() {
+        Film first = Film.builder()
+                .name("First")
+                .description("Test description")
+                .releaseDate(LocalDate.parse("1990-01-01"))
+                .duration(90)
+                .mpa(new Mpa(1L, "G"))
+                .build();
+        first.addGenres(Set.of(new Genre(1L, null), new Genre(2L, null)));
+        Film second = Film.builder()
+                .name("Second")
+                .description("Test description")
+                .releaseDate(LocalDate.parse("1991-01-01"))
+                .duration(95)
+                .build();
+
+        List<Film> films = filmStorage.createAll(List.of(first, second));
+
+        assertEquals(first.getId() + 1, second.getId());
+        assertTrue(filmStorage.isFilmExists(second.getId()));
+        assertEquals(2, filmStorage.findById(first.getId()).getGenres().size());
+        assertEquals("Second", filmStorage.findById(second.getId()).getName());
+        assertEquals(2, films.size());
+        assertEquals(3, filmStorage.getFilms().size());
+    }
+
+    @Test
+    void testLikeOperations() {
+        User user = userStorage.create(User.builder()
+                .email("user@mail.ru")
+                .login("user")
+                .name("user")
+                .birthday(LocalDate.parse("1990-01-01"))
+                .build());
+        LikeOperation like = new LikeOperation(film.getId(), user.getId(), Operation.ADD);
+        LikeOperation unlike = new LikeOperation(film.getId(), user.getId(), Operation.REMOVE);
+
+        assertArrayEquals(new boolean[]{true}, filmStorage.applyLikes(List.of(like)));
+        assertArrayEquals(new boolean[]{false}, filmStorage.applyLikes(List.of(like)));
+        assertEquals(1, filmStorage.findById(film.getId()).getLikes().size());
+
+        assertArrayEquals(new boolean[]{true}, filmStorage.applyLikes(List.of(unlike)));
+        assertArrayEquals(new boolean[]{false}, filmStorage.applyLikes(List.of(unlike)));
+        assertEquals(0, filmStorage.findById(film.getId()).getLikes().size());
+        assertEquals(0, filmStorage.reconcileLikeCounters());
+    }
+}
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.QueryStats;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+/**
+ * Каждое чтение фильмов — один запрос к БД вместе с жанрами, режиссёрами и лайками.
+ * Запросы считаются статистикой {@link QueryMetrics}, кэш фильмов перед каждым чтением сбрасывается.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({StorageTestConfiguration.class, QueryMetrics.class, QueryInstrumentationPostProcessor.class,
+        PropertyPlaceholderAutoConfiguration.class})
+public class FilmQueryCountTest {
+    private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+    private final DirectorDbStorage directorStorage;
+    private final FilmCache filmCache;
+    private final QueryMetrics queryMetrics;
+    private Director director;
+    private User user;
+    private User friend;
+    private List<Film> films;
+
+    @BeforeEach
+    void setUp() {
+        director = directorStorage.create(new Director(null, "Christopher Nolan"));
+        user = userStorage.create(user("user"));
+        friend = userStorage.create(user("friend"));
+        films = List.of(filmStorage.create(film("Interstellar", 2014)), filmStorage.create(film("Inception", 2010)),
+                filmStorage.create(film("Tenet", 2020)));
+        films.forEach(film -> {
+            filmStorage.addLikeByUser(film.getId(), user.getId());
+            filmStorage.addLikeByUser(film.getId(), friend.getId());
+        });
+    }
+
+    @Test
+    void testGetFilmsIsOneQuery() {
+        Collection<Film> loaded = assertOneQuery("FilmDbStorage.getFilms", filmStorage::getFilms);
+
+        assertEquals(3, loaded.size());
+        loaded.forEach(this::assertHydrated);
+    }
+
+    @Test
+    void testFindByIdIsOneQuery() {
+        Film loaded = assertOneQuery("FilmDbStorage.findById", () -> filmStorage.findById(films.getFirst().getId()));
+
+        assertHydrated(loaded);
+    }
+
+    @Test
+    void testFindByIdsIsOneQuery() {
+        List<Long> filmIds = films.stream().map(Film::getId).toList();
+
+        List<Film> loaded = assertOneQuery("FilmDbStorage.findByIds", () -> filmStorage.findByIds(filmIds));
+
+        assertEquals(filmIds, loaded.stream().map(Film::getId).toList());
+        loaded.forEach(this::assertHydrated);
+    }
+
+    @Test
+    void testGetFilmsPageIsOneQuery() {
+        assertEquals(2, assertOneQuery("FilmDbStorage.getFilmsPage", () -> filmStorage.getFilmsPage(0, 2)).size());
+    }
+
+    @Test
+    void testGetTopFilmsIsOneQuery() {
+        assertEquals(3, assertOneQuery("FilmDbStorage.getTopFilms",
+                () -> filmStorage.getTopFilms(10, null, null)).size());
+        assertEquals(1, assertOneQuery("FilmDbStorage.getTopFilms",
+                () -> filmStorage.getTopFilms(10, 1L, 2014)).size());
+    }
+
+    @Test
+    void testGetCommonFilmsIsOneQuery() {
+        assertEquals(3, assertOneQuery("FilmDbStorage.getCommonFilms",
+                () -> filmStorage.getCommonFilms(user.getId(), friend.getId())).size());
+    }
+
+    @Test
+    void testSearchIsOneQuery() {
+        assertEquals(1, assertOneQuery("FilmDbStorage.searchByTitle", () -> filmStorage.searchByTitle("tene")).size());
+        assertEquals(3, assertOneQuery("FilmDbStorage.searchByDirector",
+                () -> filmStorage.searchByDirector("nolan")).size());
+        assertEquals(3, assertOneQuery("FilmDbStorage.searchByBoth", () -> filmStorage.searchByBoth("nolan")).size());
+    }
+
+    @Test
+    void testGetFilmsByDirectorIsOneQuery() {
+        assertEquals(3, assertOneQuery("FilmDbStorage.getFilmsByDirectorId",
+                () -> filmStorage.getFilmsByDirectorId(director.getId())).size());
+    }
+
+    @Test
+    void testRowsAreCounted() {
+        assertOneQuery("FilmDbStorage.getFilms", filmStorage::getFilms);
+        assertEquals(3L, rows("FilmDbStorage.getFilms"));
+
+        queryMetrics.reset();
+        directorStorage.deleteById(director.getId());
+        // три связи с фильмами и сам режиссёр; перечитанный справочник режиссёров пуст
+        assertEquals(4L, rows("DirectorDbStorage.deleteById"));
+    }
+
+    private long rows(String query) {
+        return queryMetrics.getStats().stream()
+                .filter(stats -> stats.getQuery().equals(query))
+                .mapToLong(QueryStats::getRows)
+                .sum();
+    }
+
+    private <T> T assertOneQuery(String query, Supplier<T> read) {
+        filmCache.evictAll();
+        queryMetrics.reset();
+
+        T result = read.get();
+
+        Map<String, Long> calls = queryMetrics.getStats().stream()
+                .collect(Collectors.toMap(QueryStats::getQuery, QueryStats::getCalls));
+        assertEquals(Map.of(query, 1L), calls);
+        return result;
+    }
+
+    private void assertHydrated(Film film) {
+        assertEquals(new Mpa(1L, "G"), film.getMpa());
+        assertEquals(Set.of(new Genre(1L, "Комедия")), film.getGenres());
+        assertEquals(Set.of(director), film.getDirectors());
+        assertEquals(2, film.getLikes().size());
+        assertTrue(film.getLikes().contains(user.getId()));
+    }
+
+    private Film film(String name, int year) {
+        Film film = Film.builder()
+                .name(name)
+                .description("Christopher Nolan")
+                .releaseDate(LocalDate.of(year, 1, 1))
+                .duration(150)
+                .mpa(new Mpa(1L, "G"))
+                .directors(Set.of(director))
+                .build();
+        film.getGenres().add(new Genre(1L, "Комедия"));
+        return film;
+    }
+}
@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import(StorageTestConfiguration.class)
+public class FilmSearchIndexTest {
+    private final FilmSearchIndex searchIndex;
+    private final FilmDbStorage filmStorage;
+    private final DirectorDbStorage directorStorage;
+    private Director nolan;
+    private Film tenet;
+    private Film inception;
+    private Film up;
+    private Film interstellar;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex.rebuild();
+        nolan = directorStorage.create(new Director(null, "Christopher Nolan"));
+        tenet = filmStorage.create(film("Tenet", nolan));
+        inception = filmStorage.create(film("Inception", nolan));
+        up = filmStorage.create(film("Up"));
+        interstellar = filmStorage.create(film("Интерстеллар", nolan));
+    }
+
+    @Test
+    void testQueriesShorterThanGram() {
+        assertEquals(ids(tenet, inception), searchIndex.search("t", true, false));
+        assertEquals(ids(up), searchIndex.search("up", true, false));
+        assertEquals(ids(tenet), searchIndex.search("ne", true, false));
+        assertEquals(ids(tenet), searchIndex.search("ten", true, false));
+        assertEquals(ids(), searchIndex.search("x", true, false));
+    }
+
+    @Test
+    void testEmptyQueryMatchesEverything() {
+        assertEquals(ids(tenet, inception, up, interstellar), searchIndex.search("", true, false));
+        assertEquals(ids(tenet, inception, interstellar), searchIndex.search("", false, true));
+    }
+
+    @Test
+    void testLongQueryMustBeSubstring() {
+        Film scattered = filmStorage.create(film("abcx bcd"));
+
+        assertEquals(ids(), searchIndex.search("abcd", true, false));
+        assertEquals(ids(scattered), searchIndex.search("abcx b", true, false));
+        assertEquals(ids(inception), searchIndex.search("ception", true, false));
+    }
+
+    @Test
+    void testCaseFolding() {
+        assertEquals(ids(tenet), searchIndex.search("TENET", true, false));
+        assertEquals(ids(tenet), searchIndex.search("TeN", true, false));
+        assertEquals(ids(interstellar), searchIndex.search("ИНТЕРСТЕЛ", true, false));
+        assertEquals(ids(interstellar), searchIndex.search("стеллар", true, false));
+        assertEquals(ids(tenet, inception, interstellar), searchIndex.search("NOLAN", false, true));
+    }
+
+    @Test
+    void testFilmRenameAndDelete() {
+        tenet.setName("Dunkirk");
+        filmStorage.update(tenet);
+
+        assertEquals(ids(), searchIndex.search("tenet", true, false));
+        assertEquals(ids(tenet), searchIndex.search("dunk", true, false));
+        assertEquals(ids(tenet), searchIndex.search("k", true, false));
+
+        filmStorage.delete(tenet.getId());
+
+        assertEquals(ids(), searchIndex.search("dunkirk", true, false));
+        assertEquals(ids(inception, interstellar), searchIndex.search("nolan", false, true));
+    }
+
+    @Test
+    void testFilmDirectorsChange() {
+        Director gerwig = directorStorage.create(new Director(null, "Greta Gerwig"));
+        up.setDirectors(new HashSet<>(Set.of(gerwig)));
+        filmStorage.update(up);
+        tenet.setDirectors(new HashSet<>());
+        filmStorage.update(tenet);
+
+        assertEquals(ids(up), searchIndex.search("gerwig", false, true));
+        assertEquals(ids(inception, interstellar), searchIndex.search("nolan", false, true));
+        assertEquals(ids(up, inception, interstellar), searchIndex.search("t", false, true));
+    }
+
+    @Test
+    void testDirectorRenameAndDelete() {
+        nolan.setName("Jonathan Nolan");
+        directorStorage.update(nolan);
+
+        assertEquals(ids(tenet, inception, interstellar), searchIndex.search("jonathan", false, true));
+        assertEquals(ids(), searchIndex.search("christopher", false, true));
+
+        directorStorage.deleteById(nolan.getId());
+
+        assertEquals(ids(), searchIndex.search("nolan", false, true));
+        assertEquals(ids(tenet), searchIndex.search("tenet", true, true));
+    }
+
+    @Test
+    void testTitleAndDirectorResultsAreJoined() {
+        Film nolanTitle = filmStorage.create(film("Nolan's Cut"));
+
+        assertEquals(ids(nolanTitle, tenet, inception, interstellar), searchIndex.search("nolan", true, true));
+    }
+
+    @Test
+    void testRebuildGivesSameResults() {
+        tenet.setName("Dunkirk");
+        filmStorage.update(tenet);
+        Set<Long> before = searchIndex.search("n", true, true);
+
+        searchIndex.rebuild();
+
+        assertEquals(before, searchIndex.search("n", true, true));
+    }
+
+    private static Set<Long> ids(Film... films) {
+        return Arrays.stream(films).map(Film::getId).collect(Collectors.toSet());
+    }
+
+    private static Film film(String name, Director... directors) {
+        return Film.builder()
+                .name(name)
+                .description("Test description")
+                .releaseDate(LocalDate.of(2010, 1, 1))
+                .duration(100)
+                .mpa(new Mpa(1L, "G"))
+                .directors(new HashSet<>(Set.of(directors)))
+                .build();
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdIndexTest {
+    private static final long SPARSE_ID = (1L << 27) + 5;
+
+    private final List<Long> stored = new ArrayList<>(List.of(1L, 2L, 64L, 1000L));
+    private final AtomicInteger loads = new AtomicInteger();
+    private final IdIndex index = new IdIndex("test", () -> {
+        loads.incrementAndGet();
+        return List.copyOf(stored);
+    });
+
+    @Test
+    public void testLoadsOnFirstContains() {
+        assertEquals(0, loads.get());
+
+        assertTrue(index.contains(1L));
+        assertTrue(index.contains(64L));
+        assertTrue(index.contains(1000L));
+        assertFalse(index.contains(3L));
+        assertFalse(index.contains(63L));
+        assertFalse(index.contains(5000L));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testNullAndNegativeIds() {
+        assertFalse(index.contains(null));
+        assertFalse(index.contains(-1L));
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        index.load();
+
+        index.add(3L);
+        index.remove(64L);
+
+        assertTrue(index.contains(3L));
+        assertFalse(index.contains(64L));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testAddGrowsBitmap() {
+        index.load();
+
+        index.add(100_000L);
+
+        assertTrue(index.contains(100_000L));
+        assertTrue(index.contains(1000L));
+        assertFalse(index.contains(99_999L));
+    }
+
+    @Test
+    public void testSparseIds() {
+        stored.add(SPARSE_ID);
+
+        assertTrue(index.contains(SPARSE_ID));
+        assertFalse(index.contains(SPARSE_ID + 1));
+
+        index.add(SPARSE_ID + 1);
+        index.remove(SPARSE_ID);
+
+        assertTrue(index.contains(SPARSE_ID + 1));
+        assertFalse(index.contains(SPARSE_ID));
+    }
+
+    @Test
+    public void testChangesBeforeLoadComeFromDatabase() {
+        index.add(7L);
+        stored.add(8L);
+
+        assertFalse(index.contains(7L));
+        assertTrue(index.contains(8L));
+    }
+
+    @Test
+    public void testInvalidateReloads() {
+        index.load();
+        stored.add(9L);
+        assertFalse(index.contains(9L));
+
+        index.invalidate();
+
+        assertTrue(index.contains(9L));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testRollbackReloads() {
+        index.load();
+
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> index.add(5L));
+
+        assertFalse(index.contains(5L));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testCommitKeepsChange() {
+        index.load();
+
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> index.remove(2L));
+
+        assertFalse(index.contains(2L));
+        assertEquals(1, loads.get());
+    }
+
+    private static void completeTransaction(int status, Runnable change) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            change.run();
+            TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
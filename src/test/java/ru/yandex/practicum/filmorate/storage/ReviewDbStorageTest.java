@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({ReviewDbStorage.class, ExistenceIndex.class})
+public class ReviewDbStorageTest {
+    private static final int USERS = 1000;
+    private static final int THREADS = 16;
+
+    private final ReviewDbStorage reviewStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private Long reviewId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.batchUpdate("INSERT INTO users (user_id, email, login, name, birthday) " +
+                        "VALUES (?, ?, ?, ?, '1990-01-01')",
+                LongStream.rangeClosed(1, USERS)
+                        .mapToObj(id -> new Object[]{id, "u" + id + "@mail.ru", "u" + id, "u" + id})
+                        .toList());
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id) " +
+                "VALUES (1, 'Test name', 'Test description', '1980-05-21', 100, 1)");
+        reviewId = reviewStorage.create(Review.builder()
+                .content("Test review")
+                .isPositive(true)
+                .userId(1L)
+                .filmId(1L)
+                .build()).getReviewId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM films");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void testRateChangesUsefulByDelta() {
+        assertNull(reviewStorage.rate(reviewId, 1L, true));
+        assertEquals(true, reviewStorage.rate(reviewId, 1L, true));
+        assertEquals(1, useful());
+
+        assertEquals(true, reviewStorage.rate(reviewId, 1L, false));
+        assertEquals(-1, useful());
+
+        assertFalse(reviewStorage.deleteRating(reviewId, 1L, true));
+        assertTrue(reviewStorage.deleteRating(reviewId, 1L, false));
+        assertEquals(0, useful());
+    }
+
+    @Test
+    void testParallelVotesKeepUsefulExact() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            runForEachUser(executor, 1, userId -> reviewStorage.rate(reviewId, userId, true));
+            assertEquals(USERS, useful());
+
+            runForEachUser(executor, 1, userId -> reviewStorage.rate(reviewId, userId, false));
+            assertEquals(-USERS, useful());
+
+            // одного пользователя обрабатывают несколько потоков сразу
+            runForEachUser(executor, 2, userId -> {
+                for (int i = 0; i < 3; i++) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    if (random.nextInt(3) == 0) {
+                        reviewStorage.deleteRating(reviewId, userId, random.nextBoolean());
+                    } else {
+                        reviewStorage.rate(reviewId, userId, random.nextBoolean());
+                    }
+                }
+            });
+            Integer expected = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(CASE WHEN rating THEN 1 ELSE -1 END), 0) "
+                    + "FROM review_ratings WHERE review_id = ?", Integer.class, reviewId);
+            assertEquals(expected, useful());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFindTopPagesThroughTies() {
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id) " +
+                "VALUES (2, 'Other film', 'Test description', '1990-01-01', 90, 1)");
+        int[] useful = {3, 0, 3, -1, 3, 0, 5, -1, 0};
+        for (int i = 0; i < useful.length; i++) {
+            Long id = reviewStorage.create(Review.builder()
+                    .content("Review " + i)
+                    .isPositive(true)
+                    .userId(i + 2L)
+                    .filmId(i % 3 == 0 ? 2L : 1L)
+                    .build()).getReviewId();
+            jdbcTemplate.update("UPDATE reviews SET useful = ? WHERE review_id = ?", useful[i], id);
+        }
+
+        List<Integer> usefulOrder = reviewStorage.findTop(null, null, null, 100).stream()
+                .map(Review::getUseful)
+                .toList();
+        assertEquals(List.of(5, 3, 3, 3, 0, 0, 0, 0, -1, -1), usefulOrder);
+
+        for (Long filmId : new Long[]{null, 1L, 2L}) {
+            List<Long> expected = jdbcTemplate.queryForList("SELECT review_id FROM reviews " +
+                    "WHERE CAST(? AS BIGINT) IS NULL OR film_id = ? ORDER BY useful DESC, review_id",
+                    Long.class, filmId, filmId);
+            // страницы разной длины обрываются и между отзывами с равным useful, и на границе групп
+            for (int limit = 1; limit <= 4; limit++) {
+                assertEquals(expected, readAllPages(filmId, limit), "filmId=" + filmId + ", limit=" + limit);
+            }
+        }
+    }
+
+    private List<Long> readAllPages(Long filmId, int limit) {
+        List<Long> ids = new ArrayList<>();
+        Review last = null;
+        while (ids.size() <= USERS) {
+            List<Review> page = reviewStorage.findTop(filmId, last == null ? null : last.getUseful(),
+                    last == null ? null : last.getReviewId(), limit);
+            assertTrue(page.size() <= limit);
+            if (page.isEmpty()) {
+                return ids;
+            }
+            page.forEach(review -> ids.add(review.getReviewId()));
+            last = page.getLast();
+        }
+        throw new AssertionError("Страницы не заканчиваются: " + ids);
+    }
+
+    private void runForEachUser(ExecutorService executor, int rounds, LongConsumer vote) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            for (long userId = 1; userId <= USERS; userId++) {
+                long id = userId;
+                futures.add(executor.submit(() -> vote.accept(id)));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private int useful() {
+        return reviewStorage.findById(reviewId).getUseful();
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Хранилища на БД вместе с кэшами и индексами, которые они обновляют.
+ */
+@TestConfiguration
+@Import({UserDbStorage.class, FilmDbStorage.class, MpaDbStorage.class, GenreDbStorage.class, DirectorDbStorage.class,
+        FeedDbStorage.class, FeedCache.class, FeedWriter.class, FilmAssembler.class, FilmCache.class,
+        ExistenceIndex.class, ReferenceDictionaries.class, BulkFetcher.class, FilmSearchIndex.class})
+public class StorageTestConfiguration {
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedArraysTest {
+
+    @Test
+    public void testIntersectionWithEmpty() {
+        long[] values = {1, 2, 3};
+
+        assertArrayEquals(new long[0], SortedArrays.intersection(SortedArrays.empty(), values));
+        assertArrayEquals(new long[0], SortedArrays.intersection(values, SortedArrays.empty()));
+        assertArrayEquals(new long[0], SortedArrays.intersection(SortedArrays.empty(), SortedArrays.empty()));
+        assertEquals(0, SortedArrays.intersectionSize(values, SortedArrays.empty()));
+    }
+
+    @Test
+    public void testIntersectionOfDisjoint() {
+        long[] even = LongStream.rangeClosed(1, 50).map(i -> i * 2).toArray();
+        long[] odd = LongStream.rangeClosed(1, 50).map(i -> i * 2 - 1).toArray();
+
+        assertArrayEquals(new long[0], SortedArrays.intersection(even, odd));
+        assertArrayEquals(new long[0], SortedArrays.intersection(new long[]{1, 2}, new long[]{3, 4}));
+        assertEquals(0, SortedArrays.intersectionSize(even, odd));
+    }
+
+    @Test
+    public void testIntersectionOfSame() {
+        long[] values = LongStream.rangeClosed(1, 100).toArray();
+
+        assertArrayEquals(values, SortedArrays.intersection(values, values.clone()));
+        assertEquals(values.length, SortedArrays.intersectionSize(values, values.clone()));
+    }
+
+    @Test
+    public void testIntersectionOfLopsided() {
+        long[] large = LongStream.range(0, 100_000).map(i -> i * 3).toArray();
+        long[] small = {0, 1, 3, 299_997, 299_998, 299_999, 300_000};
+
+        long[] expected = {0, 3, 299_997};
+        assertArrayEquals(expected, SortedArrays.intersection(small, large));
+        assertArrayEquals(expected, SortedArrays.intersection(large, small));
+        assertEquals(expected.length, SortedArrays.intersectionSize(small, large));
+
+        assertArrayEquals(new long[]{299_997}, SortedArrays.intersection(new long[]{299_997}, large));
+        assertArrayEquals(new long[0], SortedArrays.intersection(new long[]{-1}, large));
+    }
+
+    @Test
+    public void testIntersectionMatchesMerge() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            long[] first = randomSorted(random, random.nextInt(20), 10_000);
+            long[] second = randomSorted(random, random.nextInt(5_000), 10_000);
+
+            long[] expected = LongStream.of(first).filter(value -> SortedArrays.contains(second, value)).toArray();
+            assertArrayEquals(expected, SortedArrays.intersection(first, second));
+            assertArrayEquals(expected, SortedArrays.intersection(second, first));
+            assertEquals(expected.length, SortedArrays.intersectionSize(first, second));
+        }
+    }
+
+    @Test
+    public void testInsertAndRemove() {
+        long[] values = SortedArrays.insert(SortedArrays.insert(SortedArrays.empty(), 5), 1);
+
+        assertArrayEquals(new long[]{1, 5}, values);
+        assertSame(values, SortedArrays.insert(values, 5));
+        assertSame(values, SortedArrays.remove(values, 3));
+        assertArrayEquals(new long[]{5}, SortedArrays.remove(values, 1));
+        assertArrayEquals(new long[]{1, 5}, values);
+        assertArrayEquals(new long[]{1}, SortedArrays.difference(values, new long[]{2, 5}));
+    }
+
+    private static long[] randomSorted(Random random, int size, int bound) {
+        return random.longs(size, 0, bound).sorted().distinct().toArray();
+    }
+}